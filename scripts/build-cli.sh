@@ -0,0 +1,45 @@
+#!/bin/sh
+# Builds the command-line generator (sudokuGenerator.GeneratorCli) for fast startup.
+#
+# Usage: scripts/build-cli.sh [jar|cds|native|all]
+#
+#   jar     compiles the sources into build/cli/sudoku-cli.jar
+#   cds     also records a CDS archive of the classes a run loads, so later runs map
+#           them instead of loading and verifying them:
+#             java -XX:SharedArchiveFile=build/cli/sudoku-cli.jsa -XX:TieredStopAtLevel=1 \
+#               -cp build/cli/sudoku-cli.jar sudokuGenerator.GeneratorCli --level=3
+#   native  also builds the GraalVM native image build/cli/sudoku-cli, using the
+#           configuration in src/META-INF/native-image (needs native-image on the PATH)
+#
+# The startup of each build is measured by sudokuGenerator.TestStartup.
+set -e
+cd "$(dirname "$0")/.."
+
+OUT=build/cli
+LIB=lib/postgresql-42.2.12.jar
+TARGET=${1:-all}
+
+rm -rf "$OUT/classes"
+mkdir -p "$OUT/classes"
+javac -d "$OUT/classes" -cp "$LIB" src/sudokuGenerator/*.java
+cp -r src/META-INF "$OUT/classes/"
+printf 'Class-Path: ../../%s\n' "$LIB" > "$OUT/manifest.txt"
+jar cfme "$OUT/sudoku-cli.jar" "$OUT/manifest.txt" sudokuGenerator.GeneratorCli -C "$OUT/classes" .
+echo "Built $OUT/sudoku-cli.jar"
+
+if [ "$TARGET" = cds ] || [ "$TARGET" = all ]; then
+	# records the classes a typical run loads
+	rm -f "$OUT/sudoku-cli.jsa"
+	java -XX:ArchiveClassesAtExit="$OUT/sudoku-cli.jsa" -cp "$OUT/sudoku-cli.jar" \
+		sudokuGenerator.GeneratorCli --level=3 --count=3 --seed=1 --format=json > /dev/null
+	echo "Built $OUT/sudoku-cli.jsa"
+fi
+
+if [ "$TARGET" = native ] || [ "$TARGET" = all ]; then
+	if command -v native-image > /dev/null; then
+		native-image -cp "$OUT/sudoku-cli.jar:$LIB" -o "$OUT/sudoku-cli" sudokuGenerator.GeneratorCli
+		echo "Built $OUT/sudoku-cli"
+	else
+		echo "native-image not found, skipping the native image"
+	fi
+fi
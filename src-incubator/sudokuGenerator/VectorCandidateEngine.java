@@ -0,0 +1,82 @@
+package sudokuGenerator;
+
+import jdk.incubator.vector.*;
+
+/**
+ * Computes candidate masks with the incubating Vector API, one puzzle per lane.
+ * 
+ * The puzzles are taken a vector width at a time and transposed so that each cell is 
+ * one vector of value bits across the puzzles. The set masks are then the ORs of 9 
+ * cell vectors, duplicates show up as bits present twice while ORing, and the 
+ * candidate masks are the complements of the ORs of 3 set masks. The puzzles left 
+ * over after the last full vector are computed by the scalar engine.
+ * 
+ * Compile and run with --add-modules jdk.incubator.vector (see CandidateEngine).
+ */
+public class VectorCandidateEngine implements CandidateEngine {
+
+	private static final VectorSpecies<Short> SPECIES = ShortVector.SPECIES_PREFERRED;
+	private static final int LANES = SPECIES.length();
+
+	private final ScalarCandidateEngine scalar = new ScalarCandidateEngine();
+
+	public VectorCandidateEngine() {
+		if (LANES < 8) throw new UnsupportedOperationException("Too few lanes: " + SPECIES);
+	}
+
+	@Override
+	public void computeCandidates(byte[] vals, short[] masks, boolean[] conflicts, int numPuzzles) {
+		short[] bits = new short[81 * LANES];		// the value bit of each cell, 1 if empty
+		short[] used = new short[27 * LANES];		// the mask of values of each set
+		short[] cands = new short[81 * LANES];		// the candidate mask of each cell
+		short[] dups = new short[LANES];			// the values present twice in a set
+		ShortVector zero = ShortVector.zero(SPECIES);
+		int full = numPuzzles - numPuzzles % LANES;
+		
+		for (int b = 0; b < full; b += LANES) {
+			// transposes the puzzles into one vector per cell
+			for (int i = 0; i < LANES; i++) {
+				int base = (b + i) * 81;
+				for (int p = 0; p < 81; p++) {
+					bits[p * LANES + i] = (short) (1 << vals[base + p]);
+				}
+			}
+			
+			// the set masks and duplicates
+			ShortVector dup = zero;
+			for (int s = 0; s < 27; s++) {
+				ShortVector once = zero, twice = zero;
+				for (int q : Grid.SET_CELLS[s]) {
+					ShortVector v = ShortVector.fromArray(SPECIES, bits, q * LANES);
+					twice = twice.or(once.and(v));
+					once = once.or(v);
+				}
+				dup = dup.or(twice);
+				once.intoArray(used, s * LANES);
+			}
+			dup.and((short) Grid.ALL).intoArray(dups, 0);	// bit 0 marks empty cells
+			
+			// the candidate masks, 0 for filled cells
+			for (int p = 0; p < 81; p++) {
+				int[] sets = Grid.CELL_SETS[p];
+				ShortVector u = ShortVector.fromArray(SPECIES, used, sets[0] * LANES)
+					.or(ShortVector.fromArray(SPECIES, used, sets[1] * LANES))
+					.or(ShortVector.fromArray(SPECIES, used, sets[2] * LANES));
+				VectorMask<Short> filled = ShortVector.fromArray(SPECIES, bits, p * LANES)
+					.compare(VectorOperators.NE, (short) 1);
+				u.not().and((short) Grid.ALL).blend(zero, filled).intoArray(cands, p * LANES);
+			}
+			
+			// transposes the results back
+			for (int i = 0; i < LANES; i++) {
+				int base = (b + i) * 81;
+				for (int p = 0; p < 81; p++) {
+					masks[base + p] = cands[p * LANES + i];
+				}
+				conflicts[b + i] = dups[i] != 0;
+			}
+		}
+		scalar.compute(vals, masks, conflicts, full, numPuzzles);
+	}
+
+}
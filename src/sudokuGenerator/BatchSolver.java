@@ -0,0 +1,160 @@
+package sudokuGenerator;
+
+import java.util.*;
+import java.util.stream.*;
+
+import sudokuGenerator.SudokuPuzzle.Solvable;
+
+/**
+ * Solves and validates many encoded sudoku grids at once.
+ * 
+ * A grid is encoded as an 81-character string read row by row, with digits 1-9 for
+ * givens and '0' or '.' for empty cells (see SudokuPuzzle.parseGrid). Grids are
+ * processed in parallel across the common fork/join pool. Each worker thread keeps
+ * its own SudokuPuzzle and reloads it for every grid, so the puzzle state is not
+ * reallocated per grid.
+ */
+public class BatchSolver {
+
+	/**
+	 * The solvability, solution and difficulty of one grid.
+	 */
+	public static class Result {
+
+		private final Solvable solvability;
+		private final int difficulty;
+		private final int level;
+		private final int[][] solution;	// the first solution found, or null
+
+		Result(Solvable solvability, int difficulty, int level, int[][] solution) {
+			this.solvability = solvability;
+			this.difficulty = difficulty;
+			this.level = level;
+			this.solution = solution;
+		}
+
+		/**
+		 * Returns whether the grid is a valid sudoku puzzle.
+		 * 
+		 * @return true if the grid is uniquely solvable, otherwise returns false
+		 */
+		public boolean uniquelySolvable() { return solvability == Solvable.UNIQUE; }
+
+		public Solvable getSolvability() { return solvability; }
+
+		public int getDifficulty() { return difficulty; }
+
+		public int getLevel() { return level; }
+
+		public int[][] getSolution() { return solution; }
+
+	}
+
+	// the result of a grid whose givens already break a sudoku rule
+	private static final Result CONFLICT = new Result(Solvable.NOT, 0, 0, null);
+
+	// the reusable puzzle of each worker thread
+	private final ThreadLocal<SudokuPuzzle> solver = ThreadLocal.withInitial(SudokuPuzzle::new);
+
+	// the engine computing candidates for checkAll
+	private final CandidateEngine engine = CandidateEngine.get();
+
+	/**
+	 * Solves the given grid on the calling thread.
+	 * 
+	 * @param grid the encoded grid
+	 * @return the result of the grid
+	 * @throws IllegalArgumentException if the grid is malformed
+	 */
+	public Result solve(String grid) {
+		int[][] board = SudokuPuzzle.parseGrid(grid);
+		if (hasConflict(board)) return CONFLICT;
+
+		SudokuPuzzle sp = solver.get();
+		sp.load(board, board);
+		Solvable solvability = sp.getSolvability();
+		if (solvability == Solvable.NOT) return CONFLICT;
+		return new Result(solvability, sp.getDifficulty(), sp.getLevel(), sp.getSolution());
+	}
+
+	/**
+	 * Solves the given grids in parallel.
+	 * 
+	 * @param grids the encoded grids
+	 * @return the results in the same order as the grids
+	 * @throws IllegalArgumentException if any grid is malformed
+	 */
+	public List<Result> solveAll(String[] grids) {
+		return IntStream.range(0, grids.length)
+			.parallel()
+			.mapToObj(i -> solve(grids[i]))
+			.collect(Collectors.toList());
+	}
+
+	/**
+	 * Solves the given stream of grids in parallel. The encounter order of the
+	 * results follows the stream of grids if it is ordered.
+	 * 
+	 * @param grids the stream of encoded grids
+	 * @return the stream of results
+	 */
+	public Stream<Result> solveAll(Stream<String> grids) {
+		return grids.parallel().map(this::solve);
+	}
+
+	/**
+	 * Checks the given grids without solving them. A grid fails if its givens conflict 
+	 * or an empty cell has no candidate value. The candidates of all grids are computed 
+	 * in one batch by the fastest available CandidateEngine.
+	 * 
+	 * @param grids the encoded grids
+	 * @return whether each grid passes, in the same order as the grids
+	 * @throws IllegalArgumentException if any grid is malformed
+	 */
+	public boolean[] checkAll(String[] grids) {
+		byte[] vals = new byte[grids.length * 81];
+		for (int i = 0; i < grids.length; i++) {
+			int[][] board = SudokuPuzzle.parseGrid(grids[i]);
+			for (int p = 0; p < 81; p++) {
+				vals[i * 81 + p] = (byte) board[p / 9][p % 9];
+			}
+		}
+		short[] masks = new short[vals.length];
+		boolean[] conflicts = new boolean[grids.length];
+		engine.computeCandidates(vals, masks, conflicts, grids.length);
+		
+		boolean[] pass = new boolean[grids.length];
+		for (int i = 0; i < grids.length; i++) {
+			pass[i] = !conflicts[i];
+			for (int p = i * 81; p < i * 81 + 81 && pass[i]; p++) {
+				if (vals[p] == 0 && masks[p] == 0) pass[i] = false;
+			}
+		}
+		return pass;
+	}
+
+	/**
+	 * Returns whether two givens on the board share a row, column or block.
+	 * 
+	 * @param board the 9*9 board
+	 * @return true if the givens conflict, otherwise returns false
+	 */
+	static boolean hasConflict(int[][] board) {
+		int[] rows = new int[9], cols = new int[9], blocks = new int[9];
+		for (int i = 0; i < 9; i++) {
+			for (int j = 0; j < 9; j++) {
+				if (board[i][j] == 0) continue;
+				int bit = 1 << board[i][j];
+				int b = i / 3 * 3 + j / 3;
+				if ((rows[i] & bit) != 0 || (cols[j] & bit) != 0 || (blocks[b] & bit) != 0) {
+					return true;
+				}
+				rows[i] |= bit;
+				cols[j] |= bit;
+				blocks[b] |= bit;
+			}
+		}
+		return false;
+	}
+
+}
@@ -0,0 +1,47 @@
+package sudokuGenerator;
+
+/**
+ * Computes the candidate masks of all cells of many puzzles at once, for batch 
+ * validation and scoring.
+ * 
+ * Puzzles are passed as 81 cells each, row by row, with 0 for empty cells. The 
+ * candidate mask of a cell has bit v set if v is not present in its row, column and 
+ * block, as in Grid, and is 0 for a filled cell. A puzzle conflicts if a value is 
+ * present twice in a set.
+ * 
+ * get() returns VectorCandidateEngine, which computes many puzzles in SIMD lanes, if 
+ * it was compiled and the jdk.incubator.vector module is present, or else the scalar 
+ * engine. The vector engine lives in the separate source root src-incubator:
+ * 
+ *   javac -d out -cp lib/postgresql-42.2.12.jar src/sudokuGenerator/*.java
+ *   javac --add-modules jdk.incubator.vector -d out -cp out src-incubator/sudokuGenerator/*.java
+ *   java --add-modules jdk.incubator.vector -cp out sudokuGenerator.TestCandidateEngine
+ */
+public interface CandidateEngine {
+
+	/**
+	 * Computes the candidate masks and conflicts of the given puzzles.
+	 * 
+	 * @param vals the cells of the puzzles, 81 per puzzle
+	 * @param masks the array to store the candidate masks of the cells in, 81 per puzzle
+	 * @param conflicts the array to store whether each puzzle conflicts in
+	 * @param numPuzzles the number of puzzles
+	 */
+	void computeCandidates(byte[] vals, short[] masks, boolean[] conflicts, int numPuzzles);
+
+	/**
+	 * Returns the vector engine if available, or else the scalar engine.
+	 * 
+	 * @return the fastest available engine
+	 */
+	static CandidateEngine get() {
+		try {
+			return (CandidateEngine) Class.forName("sudokuGenerator.VectorCandidateEngine")
+				.getDeclaredConstructor().newInstance();
+		} catch (ReflectiveOperationException | LinkageError | RuntimeException e) {
+			// not compiled, module not added, or no SIMD lanes
+			return new ScalarCandidateEngine();
+		}
+	}
+
+}
@@ -1,20 +1,19 @@
 package sudokuGenerator;
 
-import java.util.Arrays;
-
 /**
- * Represents a cell in a SudokuPuzzle.
+ * Represents a cell in a SudokuPuzzle. A Cell of a puzzle is a view of one cell of its 
+ * Grid, so reading or setting it reads or sets the grid directly. A Cell generated on 
+ * its own holds its values itself.
  * 
  * @author Esther Lin
  */
 public class Cell implements Comparable<Cell> {
 
-	private int row;			// the row index in the puzzle
-	private int col;			// the column index in the puzzle
-	private int sltVal;			// the solution value of the cell
-	private int val;			// the current value of the cell
-	private int numCandidates;	// the number of valid candidates
-	private boolean[] flag;		// the array of valid candidates
+	private final Grid grid;	// the grid holding the cell, or null for a standalone cell
+	private final int p;		// the cell number
+	private byte val;			// the values of a standalone cell
+	private byte sltVal;
+	private short candidates;
 	
 	/**
 	 * Generates a cell with the given indices and value.
@@ -25,12 +24,9 @@ public class Cell implements Comparable<Cell> {
 	 * @param val the current value of the cell
 	 */
 	public Cell(int row, int col, int sltVal, int val) {
-		this.row = row;
-		this.col = col;
-		this.sltVal = sltVal;
-		this.val = val;
-		numCandidates = 0;
-		flag = new boolean[10];
+		this(null, row * 9 + col);
+		this.sltVal = (byte) sltVal;
+		this.val = (byte) val;
 	}
 	
 	/**
@@ -39,12 +35,19 @@ public class Cell implements Comparable<Cell> {
 	 * @param o the cell to be cloned
 	 */
 	public Cell(Cell o) {
-		this.row = o.row;
-		this.col = o.col;
-		this.sltVal = o.sltVal;
-		this.val = o.val;
-		numCandidates = 0;
-		flag = new boolean[10];
+		this(o.getRow(), o.getCol(), o.getSltVal(), o.getVal());
+		candidates = (short) o.getCandidates();
+	}
+	
+	/**
+	 * Generates a view of the given cell of the grid.
+	 * 
+	 * @param grid the grid
+	 * @param p the cell number
+	 */
+	Cell(Grid grid, int p) {
+		this.grid = grid;
+		this.p = p;
 	}
 	
 	/**
@@ -52,7 +55,10 @@ public class Cell implements Comparable<Cell> {
 	 * 
 	 * @param val the value
 	 */
-	public void setVal(int val) { this.val = val; }
+	public void setVal(int val) {
+		if (grid != null) grid.vals[p] = (byte) val;
+		else this.val = (byte) val;
+	}
 	
 	/**
 	 * Updates the flag and numCandidates with the given puzzle.
@@ -60,25 +66,22 @@ public class Cell implements Comparable<Cell> {
 	 * @param puzzle the 2D array of cells representing the puzzle
 	 */
 	public void updateFlag(Cell[][] puzzle) {
-		Arrays.fill(flag, true);
+		int row = getRow(), col = getCol();
+		int mask = Grid.ALL;
 		for (int k = 0; k < 9; k++) {
 			// validate row
-			if (puzzle[row][k].getVal() > 0) flag[puzzle[row][k].getVal()] = false;
+			mask &= ~(1 << puzzle[row][k].getVal());
 			
 			// validate column
-			if (puzzle[k][col].getVal() > 0) flag[puzzle[k][col].getVal()] = false;
+			mask &= ~(1 << puzzle[k][col].getVal());
 			
 			// validate block
 			int r = row / 3 * 3 + k / 3;
 			int c = col / 3 * 3 + k % 3;
-			if (puzzle[r][c].getVal() > 0) flag[puzzle[r][c].getVal()] = false;
-		}
-		
-		// updates numCandidates
-		numCandidates = 0;
-		for (int k = 1; k <= 9; k++) {
-			if (flag[k]) numCandidates++;
+			mask &= ~(1 << puzzle[r][c].getVal());
 		}
+		if (grid != null) grid.candidates[p] = (short) mask;
+		else candidates = (short) mask;
 	}
 	
 	/**
@@ -86,26 +89,53 @@ public class Cell implements Comparable<Cell> {
 	 * 
 	 * @return true if val is 0, otherwise returns false
 	 */
-	public boolean isEmpty() { return val == 0; }
+	public boolean isEmpty() { return getVal() == 0; }
 
 	/**
 	 * Compares Cells with their number of candidates.
 	 */
 	@Override
 	public int compareTo(Cell o) {
-		return this.numCandidates - o.numCandidates;
+		return this.getNumCandidates() - o.getNumCandidates();
 	}
 	
-	public int getRow() { return row; }
+	public int getRow() { return p / 9; }
 	
-	public int getCol() { return col; }
+	public int getCol() { return p % 9; }
 	
-	public int getVal() { return val; }
+	public int getVal() { return grid != null ? grid.vals[p] : val; }
 	
-	public int getSltVal() { return sltVal; }
+	public int getSltVal() { return grid != null ? grid.sltVals[p] : sltVal; }
 	
-	public int getNumCandidates() { return numCandidates; }
+	/**
+	 * Returns the candidate mask as of the last update of the grid.
+	 * 
+	 * @return the candidate mask, bit v set if v is a candidate
+	 */
+	public int getCandidates() { return grid != null ? grid.candidates[p] : candidates; }
 	
-	public boolean[] getFlag() { return flag; }
+	public int getNumCandidates() { return Integer.bitCount(getCandidates()); }
+	
+	/**
+	 * Returns whether the given value is a candidate as of the last update of the grid.
+	 * 
+	 * @param v the value 1-9
+	 * @return true if v is a candidate, otherwise returns false
+	 */
+	public boolean isCandidate(int v) { return (getCandidates() & 1 << v) != 0; }
+	
+	/**
+	 * Returns the array of valid candidates as of the last update of the grid. Prefer 
+	 * getCandidates or isCandidate, which do not allocate.
+	 * 
+	 * @return the array of whether each of the digits 1-9 is valid
+	 */
+	public boolean[] getFlag() {
+		boolean[] flag = new boolean[10];
+		for (int k = 1; k <= 9; k++) {
+			flag[k] = isCandidate(k);
+		}
+		return flag;
+	}
 	
 }
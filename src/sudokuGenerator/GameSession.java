@@ -0,0 +1,349 @@
+package sudokuGenerator;
+
+import java.util.Arrays;
+
+/**
+ * Keeps the state of one game in progress and answers hint and validation requests
+ * without solving the puzzle again.
+ * 
+ * The session holds the 81 cells, the givens and the packed solution of PuzzleStore,
+ * and for each set the mask of values present and the mask of values present more
+ * than once. Placing or erasing a value only rescans the 3 sets of the cell, and the
+ * candidates of a cell are the values missing from its 3 set masks, so every request
+ * takes a few hundred memory reads at most. A session takes about 360 bytes.
+ * 
+ * The next step is, in order of preference: a filled cell whose value differs from the
+ * solution, an empty cell with one candidate (naked single), a value with one possible
+ * cell in a set (hidden single), or else the solution value of the empty cell with the
+ * fewest candidates.
+ */
+public class GameSession {
+
+	/**
+	 * A suggested move.
+	 */
+	public static final class Hint {
+
+		public enum Kind { MISTAKE, NAKED_SINGLE, HIDDEN_SINGLE, SOLUTION }
+
+		private final Kind kind;
+		private final int cell;
+		private final int value;
+		private final int set;	// the set of a hidden single, otherwise -1
+
+		Hint(Kind kind, int cell, int value, int set) {
+			this.kind = kind;
+			this.cell = cell;
+			this.value = value;
+			this.set = set;
+		}
+
+		public Kind getKind() { return kind; }
+
+		public int getCell() { return cell; }
+
+		/**
+		 * Returns the value to place in the cell. For a mistake, it is the correct value.
+		 */
+		public int getValue() { return value; }
+
+		/**
+		 * Returns the set in which the value has one possible cell, for a hidden single.
+		 * 
+		 * @return the set number 0-26, or -1 for other kinds
+		 */
+		public int getSet() { return set; }
+
+		@Override
+		public String toString() {
+			return kind + " r" + (cell / 9 + 1) + "c" + (cell % 9 + 1) + "=" + value;
+		}
+
+	}
+
+	private final byte[] vals;		// the current value of each cell, 0 if empty
+	private final short[] used;		// the mask of values present in each set
+	private final short[] dups;		// the mask of values present more than once in each set
+	private final long givens0;		// the givens of cells 0-63
+	private final long givens1;		// the givens of cells 64-80
+	private final long[] solution;	// the packed solution values, or null if unknown
+	private int numEmpty;
+
+	/**
+	 * Generates a session of the ith puzzle of the given store.
+	 * 
+	 * @param store the puzzle store
+	 * @param i the puzzle index
+	 */
+	public GameSession(PuzzleStore store, int i) {
+		long[] words = new long[PuzzleStore.PACKED_WORDS];
+		store.copyPacked(i, words, 0);
+		givens0 = words[0];
+		givens1 = words[1];
+		solution = Arrays.copyOfRange(words, PuzzleStore.GIVENS_WORDS, PuzzleStore.PACKED_WORDS);
+		vals = new byte[81];
+		for (int p = 0; p < 81; p++) {
+			if (isGiven(p)) vals[p] = (byte) getSltVal(p);
+		}
+		used = new short[27];
+		dups = new short[27];
+		init();
+	}
+
+	/**
+	 * Generates a session of the given puzzle.
+	 * 
+	 * @param puzzleBoard the 9*9 board with 0 for empty cells
+	 * @param board the 9*9 solution board, or null if unknown
+	 */
+	public GameSession(int[][] puzzleBoard, int[][] board) {
+		long g0 = 0, g1 = 0;
+		vals = new byte[81];
+		for (int p = 0; p < 81; p++) {
+			vals[p] = (byte) puzzleBoard[p / 9][p % 9];
+			if (vals[p] != 0) {
+				if (p < 64) g0 |= 1L << p;
+				else g1 |= 1L << (p - 64);
+			}
+		}
+		givens0 = g0;
+		givens1 = g1;
+		if (board != null) {
+			solution = new long[PuzzleStore.SOLUTION_WORDS];
+			for (int p = 0; p < 81; p++) {
+				solution[p >> 4] |= (long) board[p / 9][p % 9] << ((p & 15) << 2);
+			}
+		}
+		else {
+			solution = null;
+		}
+		used = new short[27];
+		dups = new short[27];
+		init();
+	}
+
+	/**
+	 * Computes the set masks and the number of empty cells from the cells.
+	 */
+	private void init() {
+		numEmpty = 0;
+		for (int p = 0; p < 81; p++) {
+			if (vals[p] == 0) numEmpty++;
+		}
+		for (int s = 0; s < 27; s++) {
+			scanSet(s);
+		}
+	}
+
+	/**
+	 * Recomputes the masks of the given set from its cells.
+	 */
+	private void scanSet(int s) {
+		int once = 0, twice = 0;
+		for (int q : Grid.SET_CELLS[s]) {
+			int bit = 1 << vals[q] & Grid.ALL;
+			twice |= once & bit;
+			once |= bit;
+		}
+		used[s] = (short) once;
+		dups[s] = (short) twice;
+	}
+
+	/**
+	 * Places the given value in the given cell, replacing its current value.
+	 * 
+	 * @param p the cell number
+	 * @param v the value 1-9
+	 * @return true if the value conflicts with no other cell, otherwise returns false
+	 * @throws IllegalArgumentException if the cell is a given or the value is not 1-9
+	 */
+	public boolean place(int p, int v) {
+		if (v < 1 || v > 9) throw new IllegalArgumentException("Invalid value: " + v);
+		boolean consistent = isConsistent(p, v);
+		set(p, v);
+		return consistent;
+	}
+
+	/**
+	 * Empties the given cell.
+	 * 
+	 * @param p the cell number
+	 * @throws IllegalArgumentException if the cell is a given
+	 */
+	public void erase(int p) {
+		set(p, 0);
+	}
+
+	private void set(int p, int v) {
+		if (isGiven(p)) throw new IllegalArgumentException("Cell " + p + " is a given");
+		if (vals[p] == v) return;
+		if (vals[p] == 0) numEmpty--;
+		if (v == 0) numEmpty++;
+		vals[p] = (byte) v;
+		int[] sets = Grid.CELL_SETS[p];
+		scanSet(sets[0]);
+		scanSet(sets[1]);
+		scanSet(sets[2]);
+	}
+
+	/**
+	 * Returns whether the given value can be placed in the given cell without
+	 * conflicting with another cell. The current value of the cell is ignored.
+	 * 
+	 * @param p the cell number
+	 * @param v the value 1-9
+	 * @return true if no peer of the cell holds the value, otherwise returns false
+	 */
+	public boolean isConsistent(int p, int v) {
+		int bit = 1 << v;
+		int[] sets = Grid.CELL_SETS[p];
+		if (((used[sets[0]] | used[sets[1]] | used[sets[2]]) & bit) == 0) return true;
+		if (vals[p] != v) return false;
+		// the value is present because of the cell itself, unless it is present twice
+		return ((dups[sets[0]] | dups[sets[1]] | dups[sets[2]]) & bit) == 0;
+	}
+
+	/**
+	 * Returns whether the given value is the solution value of the given cell.
+	 * 
+	 * @param p the cell number
+	 * @param v the value 1-9
+	 * @return true if the value is correct, otherwise returns false
+	 * @throws IllegalStateException if the solution is unknown
+	 */
+	public boolean isCorrect(int p, int v) {
+		if (solution == null) throw new IllegalStateException("The solution is unknown");
+		return getSltVal(p) == v;
+	}
+
+	/**
+	 * Returns whether the given filled cell shares its value with another cell of one
+	 * of its sets.
+	 * 
+	 * @param p the cell number
+	 * @return true if the cell is in conflict, otherwise returns false
+	 */
+	public boolean isInConflict(int p) {
+		if (vals[p] == 0) return false;
+		int bit = 1 << vals[p];
+		int[] sets = Grid.CELL_SETS[p];
+		return ((dups[sets[0]] | dups[sets[1]] | dups[sets[2]]) & bit) != 0;
+	}
+
+	/**
+	 * Returns the cells in conflict.
+	 * 
+	 * @return the cell numbers in increasing order
+	 */
+	public int[] getConflicts() {
+		int n = 0;
+		int[] cells = new int[81];
+		for (int p = 0; p < 81; p++) {
+			if (isInConflict(p)) cells[n++] = p;
+		}
+		return Arrays.copyOf(cells, n);
+	}
+
+	/**
+	 * Returns the candidates of the given empty cell: the values present in none of its
+	 * sets.
+	 * 
+	 * @param p the cell number
+	 * @return the candidate mask, bit v set if v is a candidate, or 0 if the cell is filled
+	 */
+	public int getCandidates(int p) {
+		if (vals[p] != 0) return 0;
+		int[] sets = Grid.CELL_SETS[p];
+		return ~(used[sets[0]] | used[sets[1]] | used[sets[2]]) & Grid.ALL;
+	}
+
+	/**
+	 * Returns the next step for the player.
+	 * 
+	 * @return the hint, or null if the puzzle is solved, or if the solution is unknown
+	 *         and no single is left
+	 */
+	public Hint nextStep() {
+		// a wrong value makes the singles unreliable
+		if (solution != null) {
+			for (int p = 0; p < 81; p++) {
+				if (vals[p] != 0 && vals[p] != getSltVal(p)) {
+					return new Hint(Hint.Kind.MISTAKE, p, getSltVal(p), -1);
+				}
+			}
+		}
+		if (numEmpty == 0) return null;
+
+		// naked singles, keeping the cell with the fewest candidates
+		int cell = -1, cellNum = 10;
+		for (int p = 0; p < 81; p++) {
+			if (vals[p] != 0) continue;
+			int m = getCandidates(p);
+			int n = Integer.bitCount(m);
+			if (n == 1) return new Hint(Hint.Kind.NAKED_SINGLE, p, Integer.numberOfTrailingZeros(m), -1);
+			if (n > 0 && n < cellNum) {
+				cell = p;
+				cellNum = n;
+			}
+		}
+
+		// hidden singles
+		for (int s = 0; s < 27; s++) {
+			int once = 0, twice = 0;
+			for (int q : Grid.SET_CELLS[s]) {
+				int m = getCandidates(q);
+				twice |= once & m;
+				once |= m;
+			}
+			int hidden = once & ~twice & ~used[s];
+			if (hidden == 0) continue;
+			int bit = hidden & -hidden;
+			for (int q : Grid.SET_CELLS[s]) {
+				if ((getCandidates(q) & bit) != 0) {
+					return new Hint(Hint.Kind.HIDDEN_SINGLE, q, Integer.numberOfTrailingZeros(bit), s);
+				}
+			}
+		}
+
+		if (solution == null || cell < 0) return null;
+		return new Hint(Hint.Kind.SOLUTION, cell, getSltVal(cell), -1);
+	}
+
+	/**
+	 * Returns whether every cell is filled without conflict.
+	 */
+	public boolean isSolved() {
+		if (numEmpty > 0) return false;
+		for (int s = 0; s < 27; s++) {
+			if (dups[s] != 0) return false;
+		}
+		return true;
+	}
+
+	public boolean isGiven(int p) {
+		long word = p < 64 ? givens0 : givens1;
+		return (word >>> (p & 63) & 1) != 0;
+	}
+
+	public int getVal(int p) { return vals[p]; }
+
+	public int getNumEmptyCell() { return numEmpty; }
+
+	private int getSltVal(int p) {
+		return (int) (solution[p >> 4] >>> ((p & 15) << 2)) & 15;
+	}
+
+	/**
+	 * Returns the current values of the game.
+	 * 
+	 * @return the 9*9 board with 0 for empty cells
+	 */
+	public int[][] toBoard() {
+		int[][] board = new int[9][9];
+		for (int p = 0; p < 81; p++) {
+			board[p / 9][p % 9] = vals[p];
+		}
+		return board;
+	}
+
+}
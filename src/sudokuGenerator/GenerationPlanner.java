@@ -0,0 +1,246 @@
+package sudokuGenerator;
+
+import java.sql.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Plans and runs the generation of puzzles needed to bring every level up to a target
+ * inventory.
+ * 
+ * The planner reads the number of puzzles of each level in the database and the yield
+ * of past runs (generated puzzles per attempt and milliseconds per attempt) from the
+ * generation_stats table. The expected work of a level is
+ * 
+ *   (target - count) / yield * millis per attempt
+ * 
+ * Worker threads repeatedly pick the level with the most expected work left, so the
+ * heaviest, lowest-yield levels start first and get the most threads, and all levels
+ * finish at about the same time. Levels without history start with a yield of 1 and
+ * the average cost of the known levels; their estimates are refined as the run goes.
+ */
+public class GenerationPlanner {
+
+	// the maximal number of attempts per missing puzzle before a level is given up
+	static final int MAX_ATTEMPTS_PER_PUZZLE = 20;
+
+	/**
+	 * The inventory, history and progress of one level.
+	 */
+	static class LevelPlan {
+
+		final int level;
+		int count;				// the number of puzzles in the database
+		long pastAttempts;		// the accumulated attempts of past runs
+		long pastGenerated;		// the accumulated generated puzzles of past runs
+		long pastMillis;		// the accumulated milliseconds of past runs
+		int deficit;			// the number of puzzles to generate
+		int attempts;			// the attempts of this run
+		int generated;			// the generated puzzles of this run
+		int inFlight;			// the running attempts of this run
+		long millis;			// the milliseconds of this run
+
+		LevelPlan(int level) { this.level = level; }
+
+		/**
+		 * Returns the number of generated puzzles per attempt, smoothed so a level
+		 * without history has a yield of 1.
+		 */
+		double yieldRate() {
+			return (pastGenerated + generated + 1.0) / (pastAttempts + attempts + 1.0);
+		}
+
+		/**
+		 * Returns the milliseconds per attempt, or the given fallback if unknown.
+		 */
+		double millisPerAttempt(double fallback) {
+			long a = pastAttempts + attempts;
+			return a > 0 ? (double) (pastMillis + millis) / a : fallback;
+		}
+
+		/**
+		 * Returns the expected milliseconds of work left, minus the running attempts.
+		 */
+		double expectedMillis(double fallback) {
+			double remainingAttempts = (deficit - generated) / yieldRate() - inFlight;
+			return remainingAttempts * millisPerAttempt(fallback);
+		}
+
+		boolean isDone() {
+			return generated >= deficit || attempts >= deficit * MAX_ATTEMPTS_PER_PUZZLE;
+		}
+
+	}
+
+	private final int target;
+	private final int threads;
+	private final LevelPlan[] plans;
+	private long seed;				// the seed of the last run
+
+	/**
+	 * Generates a planner.
+	 * 
+	 * @param target the number of puzzles wanted for each level
+	 * @param threads the number of generating threads
+	 */
+	public GenerationPlanner(int target, int threads) {
+		this.target = target;
+		this.threads = threads;
+		plans = new LevelPlan[7];
+		for (int l = 1; l <= 6; l++) {
+			plans[l] = new LevelPlan(l);
+		}
+	}
+
+	/**
+	 * Reads the current level counts and the yield of past runs from the database. The
+	 * tables must have been created with PostgreSqlConnection.createTables.
+	 * 
+	 * @param conn the connection
+	 * @throws SQLException
+	 */
+	public void loadInventory(Connection conn) throws SQLException {
+		try (Statement stmt = conn.createStatement()) {
+			ResultSet resultSet = stmt.executeQuery(PostgreSqlConnection.Queries.getLevelCounts);
+			while (resultSet.next()) {
+				int l = resultSet.getInt("level");
+				if (l >= 1 && l <= 6) plans[l].count = resultSet.getInt("count");
+			}
+
+			resultSet = stmt.executeQuery(PostgreSqlConnection.Queries.getGenerationStats);
+			while (resultSet.next()) {
+				int l = resultSet.getInt("level");
+				if (l < 1 || l > 6) continue;
+				plans[l].pastAttempts = resultSet.getLong("attempts");
+				plans[l].pastGenerated = resultSet.getLong("generated");
+				plans[l].pastMillis = resultSet.getLong("millis");
+			}
+		} catch (SQLException e) { throw e; }
+
+		for (int l = 1; l <= 6; l++) {
+			plans[l].deficit = Math.max(0, target - plans[l].count);
+		}
+	}
+
+	/**
+	 * Records the yield and the seed of this run in the database.
+	 * 
+	 * @param conn the connection
+	 * @throws SQLException
+	 */
+	public void saveStats(Connection conn) throws SQLException {
+		try (PreparedStatement stmt = conn.prepareStatement(PostgreSqlConnection.Queries.insertGenerationStats)) {
+			for (int l = 1; l <= 6; l++) {
+				if (plans[l].attempts == 0) continue;
+				stmt.setInt(1, l);						// level
+				stmt.setInt(2, plans[l].attempts);		// attempts
+				stmt.setInt(3, plans[l].generated);		// generated
+				stmt.setLong(4, plans[l].millis);		// millis
+				stmt.setLong(5, seed);					// seed
+				stmt.addBatch();
+			}
+			stmt.executeBatch();
+		} catch (SQLException e) { throw e; }
+	}
+
+	/**
+	 * Returns the average milliseconds per attempt of the levels with history, used
+	 * for the levels without.
+	 */
+	private double fallbackMillis() {
+		long attempts = 0, millis = 0;
+		for (int l = 1; l <= 6; l++) {
+			attempts += plans[l].pastAttempts + plans[l].attempts;
+			millis += plans[l].pastMillis + plans[l].millis;
+		}
+		return attempts > 0 ? (double) millis / attempts : 1000;
+	}
+
+	/**
+	 * Prints the plan of each level, heaviest first.
+	 */
+	public void printPlan() {
+		double fallback = fallbackMillis();
+		List<LevelPlan> order = new ArrayList<LevelPlan>();
+		for (int l = 1; l <= 6; l++) {
+			order.add(plans[l]);
+		}
+		order.sort((a, b) -> Double.compare(b.expectedMillis(fallback), a.expectedMillis(fallback)));
+		for (LevelPlan p : order) {
+			System.out.println(
+				"Level " + p.level + ": " + p.count + " in inventory, " + p.deficit + " to generate, " +
+				String.format("yield %.2f, %.0f ms/attempt, %.0f s expected",
+					p.yieldRate(), p.millisPerAttempt(fallback), p.expectedMillis(fallback) / 1000)
+			);
+		}
+	}
+
+	/**
+	 * Returns the level with the most expected work left and marks an attempt of it as
+	 * running, or returns 0 if all levels are done.
+	 */
+	private synchronized int nextLevel() {
+		double fallback = fallbackMillis();
+		LevelPlan next = null;
+		for (int l = 1; l <= 6; l++) {
+			LevelPlan p = plans[l];
+			if (p.isDone()) continue;
+			if (next == null || p.expectedMillis(fallback) > next.expectedMillis(fallback)) {
+				next = p;
+			}
+		}
+		if (next == null) return 0;
+		next.inFlight++;
+		return next.level;
+	}
+
+	/**
+	 * Records a finished attempt, and appends the puzzle if the level still needs it.
+	 */
+	private synchronized void finish(int level, SudokuPuzzle sp, long millis, PuzzleStore store) {
+		LevelPlan p = plans[level];
+		p.inFlight--;
+		p.attempts++;
+		p.millis += millis;
+		if (sp != null && p.generated < p.deficit) {
+			p.generated++;
+			store.append(sp);
+		}
+	}
+
+	/**
+	 * Generates the planned puzzles in parallel.
+	 * 
+	 * @param seed the seed of the generating threads
+	 * @return the store of generated puzzles
+	 * @throws InterruptedException
+	 */
+	public PuzzleStore run(long seed) throws InterruptedException {
+		this.seed = seed;
+		PuzzleStore store = new PuzzleStore();
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		for (int t = 0; t < threads; t++) {
+			PuzzleGenerator pg = new PuzzleGenerator(ShardWorker.boardSeed(seed, t));
+			executor.execute(() -> {
+				int level;
+				while ((level = nextLevel()) > 0) {
+					long start = System.nanoTime();
+					SudokuPuzzle sp = pg.generatePuzzleByLevel(pg.generateBoard(), level);
+					finish(level, sp, (System.nanoTime() - start) / 1000000, store);
+				}
+			});
+		}
+		executor.shutdown();
+		executor.awaitTermination(Long.MAX_VALUE, TimeUnit.DAYS);
+
+		for (int l = 1; l <= 6; l++) {
+			LevelPlan p = plans[l];
+			System.out.println(
+				"Level " + l + ": " + p.generated + " of " + p.deficit + " puzzles generated in " +
+				p.attempts + " attempts."
+			);
+		}
+		return store;
+	}
+
+}
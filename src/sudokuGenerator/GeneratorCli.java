@@ -0,0 +1,130 @@
+package sudokuGenerator;
+
+/**
+ * Generates a few puzzles from the command line, for cron jobs and scripts.
+ * 
+ * Nothing but the generator is loaded unless --db is given, so the JDBC driver does 
+ * not slow down a run that only prints. The CLI can be run from a jar with a CDS 
+ * archive or built as a GraalVM native image (see scripts/build-cli.sh), which brings 
+ * a cold start of one puzzle down to tens of milliseconds.
+ * 
+ * Usage: GeneratorCli [--level=0-6] [--count=n] [--seed=n] [--format=grid|json|board]
+ *        [--operator=guided|random] [--db[=url]]
+ * 
+ *   --level       the level 1-6, or 0 for puzzles of maximal difficulty (default: 3)
+ *   --count       the number of puzzles (default: 1)
+ *   --seed        the seed (default: the current time)
+ *   --format      grid: "<level> <difficulty> <puzzle grid> <solution grid>" per line,
+ *                 json: one JSON object per line, board: the puzzle rows (default: grid)
+ *   --operator    the mutation operator of the generator (default: guided)
+ *   --db          inserts the puzzles into the database instead of printing them, at 
+ *                 the given JDBC url or PostgreSqlConnection.DB_URL
+ */
+public class GeneratorCli {
+
+	static final String USAGE = "Usage: GeneratorCli [--level=0-6] [--count=n] [--seed=n] " +
+		"[--format=grid|json|board] [--operator=guided|random] [--db[=url]]";
+
+	public static void main(String[] args) {
+		int level = 3;
+		int count = 1;
+		long seed = System.currentTimeMillis();
+		String format = "grid";
+		String operator = "guided";
+		String db = null;
+		try {
+			for (String arg : args) {
+				if (arg.startsWith("--level=")) level = Integer.parseInt(arg.substring(8));
+				else if (arg.startsWith("--count=")) count = Integer.parseInt(arg.substring(8));
+				else if (arg.startsWith("--seed=")) seed = Long.parseLong(arg.substring(7));
+				else if (arg.startsWith("--format=")) format = arg.substring(9);
+				else if (arg.startsWith("--operator=")) operator = arg.substring(11);
+				else if (arg.equals("--db")) db = PostgreSqlConnection.DB_URL;
+				else if (arg.startsWith("--db=")) db = arg.substring(5);
+				else throw new IllegalArgumentException("Unknown option: " + arg);
+			}
+			if (level < 0 || level > 6) throw new IllegalArgumentException("Level must be 0-6: " + level);
+			if (count < 1 || count > PuzzleStore.MAX_SIZE) {
+				throw new IllegalArgumentException("Count must be 1-" + PuzzleStore.MAX_SIZE + ": " + count);
+			}
+			if (!format.equals("grid") && !format.equals("json") && !format.equals("board")) {
+				throw new IllegalArgumentException("Unknown format: " + format);
+			}
+			if (!operator.equals("guided") && !operator.equals("random")) {
+				throw new IllegalArgumentException("Unknown operator: " + operator);
+			}
+		} catch (IllegalArgumentException e) {
+			System.err.println(e.getMessage());
+			System.err.println(USAGE);
+			System.exit(2);
+		}
+
+		PuzzleGenerator pg = new PuzzleGenerator(seed);
+		if (operator.equals("guided")) pg.setMutationOperator(new GuidedMutationOperator());
+		PuzzleStore store = new PuzzleStore(count);
+		StringBuilder out = new StringBuilder();
+
+		// gives up after the attempts the generation planner allows per puzzle
+		long attempts = 0, maxAttempts = (long) count * GenerationPlanner.MAX_ATTEMPTS_PER_PUZZLE;
+		while (store.size() < count && attempts++ < maxAttempts) {
+			int[][] board = pg.generateBoard();
+			SudokuPuzzle sp = level == 0
+				? pg.generatePuzzle(board)
+				: pg.generatePuzzleByLevel(board, level);
+			if (sp == null || !sp.uniquelySolvable()) continue;
+			store.append(sp);
+			if (db == null) print(out, sp, board, format);
+		}
+		if (store.size() < count) {
+			System.err.println(store.size() + " of " + count + " puzzles generated.");
+		}
+
+		if (db == null) {
+			System.out.print(out);
+			System.out.flush();
+		}
+		else {
+			try {
+				PostgreSqlConnection.insertPuzzles(db, store);
+			} catch (java.sql.SQLException e) {
+				System.err.println("Database error: " + e.getMessage());
+				System.exit(1);
+			}
+		}
+		if (store.size() < count) System.exit(1);
+	}
+
+	/**
+	 * Appends the given puzzle in the given format.
+	 */
+	static void print(StringBuilder out, SudokuPuzzle sp, int[][] board, String format) {
+		String puzzle = SudokuPuzzle.formatGrid(sp.getPuzzleBoard());
+		String solution = SudokuPuzzle.formatGrid(board);
+		switch (format) {
+			case "json":
+				out.append("{\"level\":").append(sp.getLevel())
+					.append(",\"difficulty\":").append(sp.getDifficulty())
+					.append(",\"clues\":").append(sp.getNumClues())
+					.append(",\"puzzle\":\"").append(puzzle)
+					.append("\",\"solution\":\"").append(solution).append("\"}\n");
+				break;
+			case "board":
+				out.append("Level ").append(sp.getLevel())
+					.append(", difficulty ").append(sp.getDifficulty()).append('\n');
+				for (int r = 0; r < 9; r++) {
+					for (int c = 0; c < 9; c++) {
+						out.append(c == 0 ? "" : c % 3 == 0 ? " | " : " ")
+							.append(puzzle.charAt(r * 9 + c) == '0' ? '.' : puzzle.charAt(r * 9 + c));
+					}
+					out.append('\n');
+					if (r == 2 || r == 5) out.append("------+-------+------\n");
+				}
+				out.append('\n');
+				break;
+			default:
+				out.append(sp.getLevel()).append(' ').append(sp.getDifficulty()).append(' ')
+					.append(puzzle).append(' ').append(solution).append('\n');
+		}
+	}
+
+}
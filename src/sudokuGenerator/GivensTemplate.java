@@ -0,0 +1,159 @@
+package sudokuGenerator;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * A layout of given cells, such as a themed shape or a symmetric pattern, to generate 
+ * puzzles for. The givens are kept as an 81-bit mask, cells 0-63 in the first word 
+ * and 64-80 in the second, as in SudokuPuzzle.Snapshot.
+ */
+public class GivensTemplate {
+
+	private final long givens0;
+	private final long givens1;
+
+	private GivensTemplate(long givens0, long givens1) {
+		this.givens0 = givens0;
+		this.givens1 = givens1;
+	}
+
+	/**
+	 * Parses a template of 81 characters row by row: '.', '0' or '_' for an empty 
+	 * cell and any other character (such as 'x' or a digit) for a given. Whitespace 
+	 * is ignored, so the template can be written as 9 lines.
+	 * 
+	 * @param template the template string
+	 * @return the template
+	 */
+	public static GivensTemplate parse(String template) {
+		long g0 = 0, g1 = 0;
+		int p = 0;
+		for (int i = 0; i < template.length(); i++) {
+			char ch = template.charAt(i);
+			if (Character.isWhitespace(ch)) continue;
+			if (p == 81) throw new IllegalArgumentException("Template must have 81 cells: " + template);
+			if (ch != '.' && ch != '0' && ch != '_') {
+				if (p < 64) g0 |= 1L << p;
+				else g1 |= 1L << (p - 64);
+			}
+			p++;
+		}
+		if (p != 81) throw new IllegalArgumentException("Template must have 81 cells: " + template);
+		return new GivensTemplate(g0, g1);
+	}
+
+	/**
+	 * Returns the template of the givens of the given puzzle board.
+	 * 
+	 * @param puzzleBoard the 9*9 board with 0 for empty cells
+	 * @return the template
+	 */
+	public static GivensTemplate of(int[][] puzzleBoard) {
+		long g0 = 0, g1 = 0;
+		for (int p = 0; p < 81; p++) {
+			if (puzzleBoard[p / 9][p % 9] == 0) continue;
+			if (p < 64) g0 |= 1L << p;
+			else g1 |= 1L << (p - 64);
+		}
+		return new GivensTemplate(g0, g1);
+	}
+
+	/**
+	 * Returns a random template with the given symmetry and about the given number of 
+	 * givens, picking whole orbits of the symmetry.
+	 * 
+	 * @param symmetry the symmetry
+	 * @param numGivens the number of givens wanted
+	 * @param rand the random generator
+	 * @return the template, with at most numGivens + 3 givens
+	 */
+	public static GivensTemplate random(Symmetry symmetry, int numGivens, Random rand) {
+		long g0 = 0, g1 = 0;
+		int n = 0;
+		while (n < numGivens) {
+			int p = rand.nextInt(81);
+			if (p < 64 ? (g0 & 1L << p) != 0 : (g1 & 1L << (p - 64)) != 0) continue;
+			for (int q : symmetry.orbit(p)) {
+				if (q < 64) g0 |= 1L << q;
+				else g1 |= 1L << (q - 64);
+				n++;
+			}
+		}
+		return new GivensTemplate(g0, g1);
+	}
+
+	public boolean isGiven(int p) {
+		return p < 64 ? (givens0 >>> p & 1) != 0 : (givens1 >>> (p - 64) & 1) != 0;
+	}
+
+	public int getNumGivens() {
+		return Long.bitCount(givens0) + Long.bitCount(givens1);
+	}
+
+	/**
+	 * Returns the given cells in order.
+	 * 
+	 * @return the cell numbers of the givens
+	 */
+	public int[] getCells() {
+		int[] cells = new int[getNumGivens()];
+		int n = 0;
+		for (int p = 0; p < 81; p++) {
+			if (isGiven(p)) cells[n++] = p;
+		}
+		return cells;
+	}
+
+	/**
+	 * Returns whether the template has the given symmetry.
+	 * 
+	 * @param symmetry the symmetry
+	 * @return true if the symmetry maps every given to a given
+	 */
+	public boolean hasSymmetry(Symmetry symmetry) {
+		for (int p = 0; p < 81; p++) {
+			if (isGiven(p) && !isGiven(symmetry.map(p))) return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Returns false if no puzzle with these givens can be uniquely solvable: with fewer 
+	 * than 17 givens, or with two empty rows in a band or two empty columns in a stack, 
+	 * whose values could be swapped in any solution.
+	 * 
+	 * @return false if the template never has a unique solution
+	 */
+	public boolean mayBeUnique() {
+		if (getNumGivens() < 17) return false;
+		boolean[] emptyRow = new boolean[9], emptyCol = new boolean[9];
+		Arrays.fill(emptyRow, true);
+		Arrays.fill(emptyCol, true);
+		for (int p = 0; p < 81; p++) {
+			if (!isGiven(p)) continue;
+			emptyRow[p / 9] = false;
+			emptyCol[p % 9] = false;
+		}
+		for (int b = 0; b < 9; b += 3) {
+			int rows = 0, cols = 0;
+			for (int k = b; k < b + 3; k++) {
+				if (emptyRow[k]) rows++;
+				if (emptyCol[k]) cols++;
+			}
+			if (rows >= 2 || cols >= 2) return false;
+		}
+		return true;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder(90);
+		for (int p = 0; p < 81; p++) {
+			sb.append(isGiven(p) ? 'x' : '.');
+			if (p % 9 == 8) sb.append('\n');
+		}
+		return sb.toString();
+	}
+
+}
@@ -0,0 +1,334 @@
+package sudokuGenerator;
+
+import java.util.Arrays;
+
+/**
+ * The flat primitive representation of a sudoku puzzle shared by the solver, the
+ * generator, the puzzle store and the printers.
+ * 
+ * Cells are numbered 0-80 row by row. Sets are numbered 0-26: rows 0-8, columns 9-17
+ * and blocks 18-26, and the cells of a set are listed row by row. A value or candidate
+ * mask uses bit v for digit v (bits 1-9).
+ * 
+ * The static tables hold the cells of each set, the sets of each cell and the 20 peers
+ * of each cell, so no index arithmetic is repeated in the inner loops.
+ */
+public class Grid {
+
+	static final int ALL = 0x3FE;					// the mask of digits 1-9
+	static final int[][] SET_CELLS = new int[27][9];	// the cells of each set
+	static final int[][] CELL_SETS = new int[81][3];	// the row, column and block of each cell
+	static final int[][] PEERS = new int[81][20];		// the other cells sharing a set
+
+	static {
+		for (int k = 0; k < 9; k++) {
+			for (int m = 0; m < 9; m++) {
+				SET_CELLS[k][m] = k * 9 + m;							// row Sets
+				SET_CELLS[k + 9][m] = m * 9 + k;						// column Sets
+				SET_CELLS[k + 18][m] = (k / 3 * 3 + m / 3) * 9 + k % 3 * 3 + m % 3;	// block Sets
+			}
+		}
+		for (int p = 0; p < 81; p++) {
+			int r = p / 9, c = p % 9;
+			CELL_SETS[p][0] = r;
+			CELL_SETS[p][1] = 9 + c;
+			CELL_SETS[p][2] = 18 + r / 3 * 3 + c / 3;
+
+			int n = 0;
+			for (int q = 0; q < 81; q++) {
+				if (q == p) continue;
+				int qr = q / 9, qc = q % 9;
+				if (qr == r || qc == c || (qr / 3 == r / 3 && qc / 3 == c / 3)) {
+					PEERS[p][n++] = q;
+				}
+			}
+		}
+	}
+
+	final byte[] vals;			// the current value of each cell, 0 if empty
+	final byte[] sltVals;		// the solution value of each cell
+	final short[] candidates;	// the candidate mask of each empty cell
+	final int[] used;			// the mask of values present in each set
+	private byte[][] stackVals;	// the values of each search depth, created on demand
+	private int[][] stackUsed;	// the set masks of each search depth
+
+	public Grid() {
+		vals = new byte[81];
+		sltVals = new byte[81];
+		candidates = new short[81];
+		used = new int[27];
+	}
+
+	/**
+	 * Clones a grid with the given grid.
+	 * 
+	 * @param o the grid to be cloned
+	 */
+	public Grid(Grid o) {
+		vals = o.vals.clone();
+		sltVals = o.sltVals.clone();
+		candidates = o.candidates.clone();
+		used = o.used.clone();
+	}
+
+	/**
+	 * Loads the given boards.
+	 * 
+	 * @param puzzleBoard the 9*9 board with 0 for empty cells
+	 * @param board the 9*9 solution board
+	 * @return the number of empty cells
+	 */
+	public int load(int[][] puzzleBoard, int[][] board) {
+		int numEmpty = 0;
+		for (int p = 0; p < 81; p++) {
+			vals[p] = (byte) puzzleBoard[p / 9][p % 9];
+			sltVals[p] = (byte) board[p / 9][p % 9];
+			if (vals[p] == 0) numEmpty++;
+		}
+		return numEmpty;
+	}
+
+	/**
+	 * Copies the cells and solution values of the given grid.
+	 * 
+	 * @param o the grid to copy
+	 */
+	void copyFrom(Grid o) {
+		System.arraycopy(o.vals, 0, vals, 0, 81);
+		System.arraycopy(o.sltVals, 0, sltVals, 0, 81);
+	}
+	
+	/**
+	 * Updates the masks of values present in each set.
+	 */
+	void updateUsed() {
+		int[] used = this.used;
+		Arrays.fill(used, 0);
+		for (int p = 0; p < 81; p++) {
+			int v = vals[p];
+			if (v == 0) continue;
+			int[] sets = CELL_SETS[p];
+			used[sets[0]] |= 1 << v;
+			used[sets[1]] |= 1 << v;
+			used[sets[2]] |= 1 << v;
+		}
+	}
+
+	/**
+	 * Places the given value in the given empty cell and adds it to the set masks.
+	 * 
+	 * @param p the cell number
+	 * @param v the value 1-9
+	 */
+	void fill(int p, int v) {
+		vals[p] = (byte) v;
+		int[] sets = CELL_SETS[p];
+		used[sets[0]] |= 1 << v;
+		used[sets[1]] |= 1 << v;
+		used[sets[2]] |= 1 << v;
+	}
+
+	/**
+	 * Empties the given cell and removes its value from the set masks. The value must 
+	 * not be present elsewhere in its sets.
+	 * 
+	 * @param p the cell number
+	 */
+	void clear(int p) {
+		int[] sets = CELL_SETS[p];
+		int bit = ~(1 << vals[p]);
+		used[sets[0]] &= bit;
+		used[sets[1]] &= bit;
+		used[sets[2]] &= bit;
+		vals[p] = 0;
+	}
+
+	/**
+	 * Returns the candidate mask of the given cell from the current set masks.
+	 * 
+	 * @param p the cell number
+	 * @return the mask of values not present in the row, column and block of the cell
+	 */
+	int candidatesOf(int p) {
+		int[] sets = CELL_SETS[p];
+		return ~(used[sets[0]] | used[sets[1]] | used[sets[2]]) & ALL;
+	}
+
+	/**
+	 * Updates the set masks and the candidate masks of all empty cells.
+	 */
+	public void updateCandidates() {
+		updateUsed();
+		for (int p = 0; p < 81; p++) {
+			if (vals[p] == 0) candidates[p] = (short) candidatesOf(p);
+		}
+	}
+
+	/**
+	 * Counts the solutions of the grid up to the given limit. Cells are left as they 
+	 * were.
+	 * 
+	 * The search fills naked singles (cells with one candidate) and hidden singles 
+	 * (values with one possible cell in a set) before branching on the empty cell with 
+	 * the fewest candidates, so refuting a branch rarely takes more than a few levels.
+	 * 
+	 * @param limit the number of solutions to stop at
+	 * @return the number of solutions, at most limit
+	 */
+	public int countSolutions(int limit) {
+		if (stackVals == null) {
+			stackVals = new byte[82][81];
+			stackUsed = new int[82][27];
+		}
+		updateUsed();
+		System.arraycopy(vals, 0, stackVals[0], 0, 81);
+		System.arraycopy(used, 0, stackUsed[0], 0, 27);
+		return count(0, limit);
+	}
+
+	/**
+	 * Returns whether the given cell can be emptied without losing uniqueness, for a 
+	 * grid whose only solution is sltVals. It can if no solution has another value in 
+	 * the cell. Cells are left as they were.
+	 * 
+	 * @param p the cell number
+	 * @return true if the grid stays uniquely solvable without the cell
+	 */
+	public boolean isRemovable(int p) {
+		int val = vals[p];
+		vals[p] = 0;
+		updateUsed();
+		int flag = candidatesOf(p) & ~(1 << sltVals[p]);
+		boolean removable = true;
+		for (int k = 1; k <= 9 && removable; k++) {
+			if ((flag & 1 << k) == 0) continue;
+			vals[p] = (byte) k;
+			removable = countSolutions(1) == 0;
+		}
+		vals[p] = (byte) val;
+		return removable;
+	}
+	
+	/**
+	 * Counts the solutions of the state at the given search depth.
+	 * 
+	 * @param depth the search depth
+	 * @param limit the number of solutions to stop at
+	 * @return the number of solutions, at most limit
+	 */
+	private int count(int depth, int limit) {
+		byte[] v = stackVals[depth];
+		int[] u = stackUsed[depth];
+		int cell, cellMask;
+		boolean changed;
+		do {
+			changed = false;
+			cell = -1;
+			cellMask = 0;
+			int cellNum = 10;
+
+			// naked singles
+			for (int p = 0; p < 81; p++) {
+				if (v[p] != 0) continue;
+				int[] sets = CELL_SETS[p];
+				int m = ~(u[sets[0]] | u[sets[1]] | u[sets[2]]) & ALL;
+				if (m == 0) return 0;
+				int n = Integer.bitCount(m);
+				if (n == 1) {
+					place(v, u, p, m);
+					changed = true;
+				}
+				else if (n < cellNum) {
+					cell = p;
+					cellMask = m;
+					cellNum = n;
+				}
+			}
+			if (changed) continue;
+
+			// hidden singles
+			for (int s = 0; s < 27; s++) {
+				int once = 0, twice = 0;
+				for (int q : SET_CELLS[s]) {
+					if (v[q] != 0) continue;
+					int[] sets = CELL_SETS[q];
+					int m = ~(u[sets[0]] | u[sets[1]] | u[sets[2]]) & ALL;
+					twice |= once & m;
+					once |= m;
+				}
+				if ((once | u[s]) != ALL) return 0;	// a missing value has no place
+				int hidden = once & ~twice & ~u[s];
+				while (hidden != 0) {
+					int bit = hidden & -hidden;
+					hidden -= bit;
+					for (int q : SET_CELLS[s]) {
+						if (v[q] != 0) continue;
+						int[] sets = CELL_SETS[q];
+						if (((u[sets[0]] | u[sets[1]] | u[sets[2]]) & bit) != 0) continue;
+						place(v, u, q, bit);
+						break;
+					}
+					changed = true;
+				}
+			}
+		} while (changed);
+
+		if (cell < 0) return 1;		// no empty cell left
+
+		// branches on the empty cell with the fewest candidates
+		int total = 0;
+		byte[] nv = stackVals[depth + 1];
+		int[] nu = stackUsed[depth + 1];
+		while (cellMask != 0) {
+			int bit = cellMask & -cellMask;
+			cellMask -= bit;
+			System.arraycopy(v, 0, nv, 0, 81);
+			System.arraycopy(u, 0, nu, 0, 27);
+			place(nv, nu, cell, bit);
+			total += count(depth + 1, limit - total);
+			if (total >= limit) break;
+		}
+		return total;
+	}
+
+	/**
+	 * Places the value of the given bit in the given cell of a search state.
+	 */
+	private static void place(byte[] v, int[] u, int p, int bit) {
+		v[p] = (byte) Integer.numberOfTrailingZeros(bit);
+		int[] sets = CELL_SETS[p];
+		u[sets[0]] |= bit;
+		u[sets[1]] |= bit;
+		u[sets[2]] |= bit;
+	}
+
+	public int getVal(int p) { return vals[p]; }
+
+	public int getSltVal(int p) { return sltVals[p]; }
+
+	public void setVal(int p, int val) { vals[p] = (byte) val; }
+
+	public boolean isEmpty(int p) { return vals[p] == 0; }
+
+	/**
+	 * Returns the candidate mask of the given cell as of the last update.
+	 * 
+	 * @param p the cell number
+	 * @return the candidate mask, bit v set if v is a candidate
+	 */
+	public int getCandidates(int p) { return candidates[p]; }
+
+	/**
+	 * Returns the current values of the grid.
+	 * 
+	 * @return the 9*9 board with 0 for empty cells
+	 */
+	public int[][] toBoard() {
+		int[][] board = new int[9][9];
+		for (int p = 0; p < 81; p++) {
+			board[p / 9][p % 9] = vals[p];
+		}
+		return board;
+	}
+
+}
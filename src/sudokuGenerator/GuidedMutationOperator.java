@@ -0,0 +1,123 @@
+package sudokuGenerator;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Proposes the moves that are likely to be kept by the generator.
+ * 
+ * The 41 pairs of cells symmetric about the center are tracked separately (pair i holds 
+ * cells i and 80 - i; pair 40 is the center cell alone):
+ * 
+ *  * A given pair is blocked once removing it was found to break uniqueness. Removing 
+ *    more givens never restores uniqueness, so it stays blocked until a pair is added 
+ *    back or the generator restarts.
+ *  * The gain of a pair is the difficulty its last successful removal added. Pairs are 
+ *    picked for removal with a weight of 1 plus their gain.
+ *    
+ * A move removes an unblocked given pair. A removal that breaks uniqueness is undone 
+ * on the spot and the pair is blocked, and another pair is tried, so the puzzle is 
+ * never left in a state the generator discards. One move in four, or when all given 
+ * pairs are blocked, adds back a random removed pair instead to leave a local maximum. 
+ * So does every move from a puzzle above the difficulty the generator is looking for.
+ */
+public class GuidedMutationOperator implements MutationOperator {
+
+	static final int NUM_PAIRS = 41;
+
+	private final boolean[] blocked = new boolean[NUM_PAIRS];
+	private final int[] gain = new int[NUM_PAIRS];
+	private final int[] picks = new int[NUM_PAIRS];	// the pairs to pick from
+	private int[][] board;							// the board of the gains
+	private int maxDifficulty = Integer.MAX_VALUE;
+
+	@Override
+	public void reset(SudokuPuzzle puzzle, int[][] board, int maxDifficulty) {
+		this.maxDifficulty = maxDifficulty;
+		Arrays.fill(blocked, false);
+		if (this.board != board) {
+			Arrays.fill(gain, 0);
+			this.board = board;
+		}
+	}
+
+	@Override
+	public void mutate(SudokuPuzzle puzzle, int[][] board, Random rand) {
+		if (this.board != board) reset(puzzle, board, maxDifficulty);
+		if (!puzzle.uniquelySolvable()) {
+			// left by another operator; adds back random removed pairs until uniquely 
+			// solvable, which the full board is
+			int num;
+			while (!puzzle.uniquelySolvable() && (num = collect(puzzle, false)) > 0) {
+				addPair(puzzle, picks[rand.nextInt(num)]);
+			}
+			return;
+		}
+
+		int difficulty = puzzle.getDifficulty();
+		if (difficulty < maxDifficulty && rand.nextInt(4) != 0) {
+			SudokuPuzzle.Snapshot before = null;
+			int num;
+			while ((num = collect(puzzle, true)) > 0) {
+				int n = pickRemoval(num, rand);
+				if (before == null) before = puzzle.snapshot();
+				removePair(puzzle, n);
+				if (puzzle.uniquelySolvable()) {
+					gain[n] = puzzle.getDifficulty() - difficulty;
+					return;
+				}
+				puzzle.restore(before);		// undoes the removal
+				blocked[n] = true;
+			}
+		}
+
+		int num = collect(puzzle, false);
+		if (num > 0) addPair(puzzle, picks[rand.nextInt(num)]);
+	}
+
+	/**
+	 * Collects the unblocked given pairs, or the removed pairs, into picks. A pair is 
+	 * removed if either of its cells is empty.
+	 * 
+	 * @return the number of pairs collected
+	 */
+	private int collect(SudokuPuzzle puzzle, boolean given) {
+		int num = 0;
+		for (int n = 0; n < NUM_PAIRS; n++) {
+			boolean removed = puzzle.getVal(n) == 0 || puzzle.getVal(80 - n) == 0;
+			if (given ? !removed && !blocked[n] : removed) picks[num++] = n;
+		}
+		return num;
+	}
+
+	/**
+	 * Picks one of the collected given pairs, weighted by 1 plus its gain.
+	 */
+	private int pickRemoval(int num, Random rand) {
+		int total = 0;
+		for (int i = 0; i < num; i++) {
+			total += 1 + Math.max(0, gain[picks[i]]);
+		}
+		int w = rand.nextInt(total);
+		for (int i = 0; i < num; i++) {
+			w -= 1 + Math.max(0, gain[picks[i]]);
+			if (w < 0) return picks[i];
+		}
+		return picks[num - 1];
+	}
+
+	private void removePair(SudokuPuzzle puzzle, int n) {
+		puzzle.setVal(n / 9, n % 9, 0);
+		puzzle.setVal(8 - n / 9, 8 - n % 9, 0);
+		puzzle.updateAfterRemoval(n, 80 - n);
+	}
+
+	private void addPair(SudokuPuzzle puzzle, int n) {
+		int r = n / 9, c = n % 9;
+		puzzle.setVal(r, c, board[r][c]);
+		puzzle.setVal(8 - r, 8 - c, board[8 - r][8 - c]);
+		puzzle.updateAfterAddition(n, 80 - n);
+		Arrays.fill(blocked, false);	// more givens may unblock any pair
+	}
+
+}
@@ -0,0 +1,85 @@
+package sudokuGenerator;
+
+import java.sql.*;
+import java.util.Arrays;
+
+/**
+ * Loads puzzles from the puzzles and puzzle_cells tables over JDBC.
+ * 
+ * One query picks random puzzles of the level and joins their 81 cells, ordered by 
+ * puzzle and cell, so each puzzle is decoded straight from its rows into the packed 
+ * givens and solution words of PuzzleStore. The PostgreSQL driver only fetches rows in
+ * batches inside a transaction, so a load on an autocommit connection runs in its own
+ * read transaction and streams the rows instead of holding the whole result. Loads are
+ * serialized on the connection.
+ */
+public class JdbcPuzzleSource implements PuzzleSource {
+
+	private final Connection conn;
+
+	/**
+	 * Generates a source reading from the given connection.
+	 * 
+	 * @param conn the connection
+	 */
+	public JdbcPuzzleSource(Connection conn) {
+		this.conn = conn;
+	}
+
+	@Override
+	public synchronized int load(int level, int limit, PuzzleStore store) throws SQLException {
+		boolean autoCommit = conn.getAutoCommit();
+		if (autoCommit) conn.setAutoCommit(false);
+		try (PreparedStatement stmt = conn.prepareStatement(PostgreSqlConnection.Queries.getRandomPuzzleCells)) {
+			stmt.setInt(1, level);
+			stmt.setInt(2, limit);
+			stmt.setFetchSize(81 * 64);
+			try (ResultSet rs = stmt.executeQuery()) {
+				return decode(rs, level, store);
+			}
+		} finally {
+			// ends the read transaction, leaving a transaction of the caller alone
+			if (autoCommit) {
+				conn.rollback();
+				conn.setAutoCommit(true);
+			}
+		}
+	}
+
+	/**
+	 * Appends the puzzles of the given rows, ordered by puzzle and cell.
+	 */
+	private static int decode(ResultSet rs, int level, PuzzleStore store) throws SQLException {
+		int num = 0, id = -1, diff = 0, cells = 0;
+		long g0 = 0, g1 = 0;
+		long[] slt = new long[PuzzleStore.SOLUTION_WORDS];
+		while (rs.next()) {
+			int puzzleId = rs.getInt(1);
+			if (puzzleId != id) {
+				if (cells == 81) {
+					store.append(g0, g1, slt, level, diff);
+					num++;
+				}
+				id = puzzleId;
+				diff = rs.getInt(2);
+				cells = 0;
+				g0 = g1 = 0;
+				Arrays.fill(slt, 0);
+			}
+			int p = rs.getInt(3);
+			if (rs.getBoolean(4)) {
+				if (p < 64) g0 |= 1L << p;
+				else g1 |= 1L << (p - 64);
+			}
+			slt[p >> 4] |= (long) rs.getInt(5) << ((p & 15) << 2);
+			cells++;
+		}
+		// a puzzle with missing cells is skipped
+		if (cells == 81) {
+			store.append(g0, g1, slt, level, diff);
+			num++;
+		}
+		return num;
+	}
+
+}
@@ -0,0 +1,50 @@
+package sudokuGenerator;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Serves random puzzles of a PuzzleStore as a PuzzleSource, in place of the database. 
+ * An optional delay per load simulates the round trip of a query.
+ */
+public class MemoryPuzzleSource implements PuzzleSource {
+
+	private final PuzzleStore puzzles;
+	private final long delayMillis;
+
+	/**
+	 * Generates a source of the given puzzles.
+	 * 
+	 * @param puzzles the store of puzzles to serve
+	 * @param delayMillis the milliseconds to wait per load
+	 */
+	public MemoryPuzzleSource(PuzzleStore puzzles, long delayMillis) {
+		this.puzzles = puzzles;
+		this.delayMillis = delayMillis;
+	}
+
+	@Override
+	public int load(int level, int limit, PuzzleStore store) {
+		if (delayMillis > 0) {
+			try {
+				Thread.sleep(delayMillis);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		// picks random puzzles of the level without repetition
+		int n = puzzles.size(level);
+		int[] order = new int[n];
+		for (int k = 0; k < n; k++) order[k] = k;
+		int num = Math.min(limit, n);
+		ThreadLocalRandom rand = ThreadLocalRandom.current();
+		for (int k = 0; k < num; k++) {
+			int r = k + rand.nextInt(n - k);
+			int tmp = order[k];
+			order[k] = order[r];
+			order[r] = tmp;
+			store.append(puzzles, puzzles.indexOf(level, order[k]));
+		}
+		return num;
+	}
+
+}
@@ -10,7 +10,7 @@ import java.util.*;
 public class MissingVal implements Comparable<MissingVal> {
 
 	private int val;
-	private Set set;	// todo
+	private Set set;	// the set missing the value
 	private List<Cell> possibleCells;
 	
 	public MissingVal(Set set, int val) {
@@ -18,7 +18,7 @@ public class MissingVal implements Comparable<MissingVal> {
 		this.set = set;
 		possibleCells = new ArrayList<Cell>();
 		for (Cell c : set.getEmptyCells()) {
-			if (c.getFlag()[val]) {
+			if (c.isCandidate(val)) {
 				possibleCells.add(c);
 			}
 		}
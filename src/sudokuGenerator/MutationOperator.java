@@ -0,0 +1,34 @@
+package sudokuGenerator;
+
+import java.util.Random;
+
+/**
+ * A move of the puzzle generator: changes a pair of cells of the puzzle and updates its 
+ * solvability. The generator keeps the result if it is uniquely solvable and more 
+ * difficult than the best puzzle so far.
+ * 
+ * An operator may keep state about the puzzle between moves; it is told by reset 
+ * whenever the generator starts from a new board or restores its best puzzle.
+ */
+public interface MutationOperator {
+
+	/**
+	 * Called when the generator starts from a new board or restarts with its best 
+	 * puzzle.
+	 * 
+	 * @param puzzle the puzzle the next moves operate on
+	 * @param board the original board
+	 * @param maxDifficulty the difficulty the generator keeps puzzles below
+	 */
+	void reset(SudokuPuzzle puzzle, int[][] board, int maxDifficulty);
+
+	/**
+	 * Changes the puzzle and updates its solvability.
+	 * 
+	 * @param puzzle the puzzle to operate on
+	 * @param board the original board
+	 * @param rand the random generator of the puzzle generator
+	 */
+	void mutate(SudokuPuzzle puzzle, int[][] board, Random rand);
+
+}
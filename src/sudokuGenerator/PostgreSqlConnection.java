@@ -1,8 +1,7 @@
 package sudokuGenerator;
 
 import java.sql.*;
-import java.util.ArrayList;
-import java.util.List;
+import java.security.SecureRandom;
 
 public class PostgreSqlConnection {
 
@@ -17,87 +16,52 @@ public class PostgreSqlConnection {
 		static String getMaxPuzzleId = "SELECT id from " + DB_NAME + ".public.puzzles " +
 			"ORDER BY id DESC LIMIT 1";
 		
+		// add column to table puzzles: num_clues
+		static String addNumClues = "ALTER TABLE " + DB_NAME + ".public.puzzles " +
+			"ADD COLUMN IF NOT EXISTS num_clues INTEGER";
+		
 		// insert data into table: puzzles
 		static String insertPuzzle = "INSERT INTO " + DB_NAME + ".public.puzzles " + 
-			"(level, difficulty, num_empty_cells) " +
-			"VALUES(?, ?, ?)";
+			"(level, difficulty, num_empty_cells, num_clues) " +
+			"VALUES(?, ?, ?, ?)";
 		
 		// insert data into table: puzzle_cells
 		static String insertPuzzleCells = "INSERT INTO " + DB_NAME + ".public.puzzle_cells " + 
 			"(cell_id, puzzle_id, is_default, value) " +
 			"VALUES(?, ?, ?, ?)";
-
-	}
-	
-	/**
-	 * Returns the given number of randomly generated 9*9 sudoku boards.
-	 * 
-	 * @param pg PuzzleGenerator object
-	 * @param num the number of sudoku boards to generate
-	 * @return a list containing the given number of randomly generated sudoku boards
-	 */
-	static List<int[][]> prepareBoards(PuzzleGenerator pg, int num) {
-		System.out.println("Generating boards.");
-		List<int[][]> boards = pg.generateBoards(num);
-		System.out.println(boards.size() + " boards generated.");
-		return boards;
-	}
-	
-	/**
-	 * Returns a list of sudoku puzzles generated from the given board with the maximal 
-	 * difficulty in the fixed amount of rounds.
-	 * 
-	 * @param pg PuzzleGenerator object
-	 * @param boards a list of sudoku boards
-	 * @return a list of sudoku puzzles randomly generated from the given list of boards
-	 */
-	static List<SudokuPuzzle> generatePuzzles(PuzzleGenerator pg, List<int[][]> boards) {
-		int[] lvCount = new int[6];
-		List<SudokuPuzzle> puzzles = new ArrayList<SudokuPuzzle>();
 		
-		System.out.println("Generating puzzles.");
-		for (int i = 0; i < boards.size(); i++) {
-			SudokuPuzzle sp = pg.generatePuzzle(boards.get(i));
-			// System.out.println("Puzzle #" + (i + 1) + " generated.\tDifficulty " + sp.getDifficulty());
-			lvCount[sp.getLevel() - 1]++;
-			puzzles.add(sp);
-		}
-
-		System.out.println(puzzles.size() + " puzzles generated.");
-		for (int i = 0; i < lvCount.length; i++) {
-			System.out.println(
-				"Level " + (i + 1) + " puzzles: " + lvCount[i] + "\t" + 
-				String.format("%.0f", (double) lvCount[i] / puzzles.size() * 100) + "%"
-			);
-		}
-		return puzzles;
-	}
-	
-	/**
-	 * Returns a list of sudoku puzzles generated from the given board with the given 
-	 * difficulty. If a valid puzzle cannot be generated in the fixed amount of rounds.
-	 * 
-	 * @param pg PuzzleGenerator object
-	 * @param boards a list of sudoku boards
-	 * @return a list of sudoku puzzles randomly generated from the given list of boards
-	 */
-	static List<SudokuPuzzle> generatePuzzlesByLevel(PuzzleGenerator pg, List<int[][]> boards, int level) {
-		List<SudokuPuzzle> puzzles = new ArrayList<SudokuPuzzle>();
-
-		System.out.println("Generating puzzles of level " + level + ".");
-		for (int i = 0; i < boards.size(); i++) {
-			SudokuPuzzle sp = pg.generatePuzzleByLevel(boards.get(i), level);
-			if (sp == null) {
-				System.out.println("Puzzle #" + (i + 1) + " not generated.");
-			}
-			else {
-				System.out.println("Puzzle #" + (i + 1) + " generated.\tDifficulty " + sp.getDifficulty());
-				puzzles.add(sp);	
-			}
-		}
+		// get the cells of random puzzles of a level, ordered by puzzle and cell
+		static String getRandomPuzzleCells = "SELECT c.puzzle_id, p.difficulty, c.cell_id, " +
+			"c.is_default, c.value FROM " + DB_NAME + ".public.puzzle_cells c JOIN " +
+			"(SELECT id, difficulty FROM " + DB_NAME + ".public.puzzles WHERE level = ? " +
+			"ORDER BY random() LIMIT ?) p ON c.puzzle_id = p.id " +
+			"ORDER BY c.puzzle_id, c.cell_id";
+		
+		// get the number of puzzles of each level
+		static String getLevelCounts = "SELECT level, COUNT(*) AS count FROM " + DB_NAME + 
+			".public.puzzles GROUP BY level";
+		
+		// create table: generation_stats, which records the yield of past generation runs
+		static String createGenerationStats = "CREATE TABLE IF NOT EXISTS " + DB_NAME + 
+			".public.generation_stats (" +
+			"id SERIAL PRIMARY KEY, level INTEGER NOT NULL, attempts INTEGER NOT NULL, " +
+			"generated INTEGER NOT NULL, millis BIGINT NOT NULL, seed BIGINT, " +
+			"created_at TIMESTAMP NOT NULL DEFAULT now())";
+		
+		// add column to table generation_stats: seed, for tables created without it
+		static String addGenerationSeed = "ALTER TABLE " + DB_NAME + ".public.generation_stats " +
+			"ADD COLUMN IF NOT EXISTS seed BIGINT";
+		
+		// get the accumulated yield of past generation runs of each level
+		static String getGenerationStats = "SELECT level, SUM(attempts) AS attempts, " +
+			"SUM(generated) AS generated, SUM(millis) AS millis FROM " + DB_NAME + 
+			".public.generation_stats GROUP BY level";
+		
+		// insert data into table: generation_stats
+		static String insertGenerationStats = "INSERT INTO " + DB_NAME + ".public.generation_stats " +
+			"(level, attempts, generated, millis, seed) " +
+			"VALUES(?, ?, ?, ?, ?)";
 
-		System.out.println(puzzles.size() + " puzzles of level " + level + " generated.");
-		return puzzles;
 	}
 	
 	/**
@@ -118,13 +82,29 @@ public class PostgreSqlConnection {
 	}
 
 	/**
-	 * Inserts puzzles into the database.
+	 * Creates the tables and columns missing from the database. Run once per connection
+	 * before puzzles or generation stats are read or inserted.
+	 * 
+	 * @param conn the connection
+	 * @throws SQLException
+	 */
+	static void createTables(Connection conn) throws SQLException {
+		try (Statement stmt = conn.createStatement()) {
+			stmt.execute(Queries.addNumClues);
+			stmt.execute(Queries.createGenerationStats);
+			stmt.execute(Queries.addGenerationSeed);
+		} catch (SQLException e) { throw e; }
+	}
+
+	/**
+	 * Inserts puzzles into the database. The tables must have been created with
+	 * createTables.
 	 * 
 	 * @param conn the connection
-	 * @param puzzles a list of puzzles to insert
+	 * @param puzzles the store of puzzles to insert
 	 * @throws SQLException
 	 */
-	static void insertPuzzles(Connection conn, List<SudokuPuzzle> puzzles) throws SQLException {
+	static void insertPuzzles(Connection conn, PuzzleStore puzzles) throws SQLException {
 		try (
 			PreparedStatement stmt1 = conn.prepareStatement(Queries.insertPuzzle);
 			PreparedStatement stmt2 = conn.prepareStatement(Queries.insertPuzzleCells);
@@ -135,18 +115,17 @@ public class PostgreSqlConnection {
 			// prepares statements in batch
 			conn.setAutoCommit(false);
 			for (int i = 0; i < puzzles.size(); i++) {
-				SudokuPuzzle sp = puzzles.get(i);
-				stmt1.setInt(1, sp.getLevel());				// level
-				stmt1.setInt(2, sp.getDifficulty());		// difficulty
-				stmt1.setInt(3, sp.getDifficulty() % 100);	// the number of empty cells
+				stmt1.setInt(1, puzzles.getLevel(i));				// level
+				stmt1.setInt(2, puzzles.getDifficulty(i));			// difficulty
+				stmt1.setInt(3, puzzles.getDifficulty(i) % 100);	// the number of empty cells
+				stmt1.setInt(4, puzzles.getNumClues(i));			// the number of clues
 				stmt1.addBatch();
 								
 				for (int j = 0; j < 81; j++) {
-					Cell cell = sp.getCell(j);
-					stmt2.setInt(1, j);						// cell_id
-					stmt2.setInt(2, prevPuzzleId + i + 1);	// puzzle_id
-					stmt2.setBoolean(3, !cell.isEmpty());	// is_default
-					stmt2.setInt(4, cell.getSltVal());		// value
+					stmt2.setInt(1, j);							// cell_id
+					stmt2.setInt(2, prevPuzzleId + i + 1);		// puzzle_id
+					stmt2.setBoolean(3, puzzles.isGiven(i, j));	// is_default
+					stmt2.setInt(4, puzzles.getSltVal(i, j));	// value
 					stmt2.addBatch();
 				}
 			}
@@ -164,23 +143,39 @@ public class PostgreSqlConnection {
 		} catch (SQLException e) { throw e; }
 	}
 	
+	/**
+	 * Inserts puzzles into the database at the given url.
+	 * 
+	 * @param url the JDBC url
+	 * @param puzzles the store of puzzles to insert
+	 * @throws SQLException
+	 */
+	static void insertPuzzles(String url, PuzzleStore puzzles) throws SQLException {
+		try (Connection conn = DriverManager.getConnection(url, DB_USER, DB_PASSWORD)) {
+			createTables(conn);
+			insertPuzzles(conn, puzzles);
+		} catch (SQLException e) { throw e; }
+	}
+	
+	// Usage: PostgreSqlConnection [seed], with a random seed by default
 	public static void main(String[] args) {
-		// prepares boards
-		PuzzleGenerator pg = new PuzzleGenerator(20190628);
-		List<int[][]> boards = prepareBoards(pg, 5000);
-		// List<SudokuPuzzle> puzzles = generatePuzzles(pg, boards);
-		
-		// generates 500 puzzles of each level from the boards
-		List<SudokuPuzzle> puzzles = new ArrayList<SudokuPuzzle>();
-		for (int i = 1; i <= 6; i++) {
-			puzzles.addAll(generatePuzzlesByLevel(pg, boards.subList(0, 500), i));
-		}
-		
-		// inserts puzzles
+		long seed = args.length > 0 ? Long.parseLong(args[0]) : new SecureRandom().nextLong();
 		try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD)) {
 			System.out.println("Connected to PostgreSQL database.");
+			
+			createTables(conn);
+			
+			// plans the puzzles needed to reach 500 puzzles of each level
+			GenerationPlanner planner = new GenerationPlanner(500, Runtime.getRuntime().availableProcessors());
+			planner.loadInventory(conn);
+			planner.printPlan();
+			
+			// generates and inserts puzzles
+			System.out.println("Seed: " + seed);
+			PuzzleStore puzzles = planner.run(seed);
 			insertPuzzles(conn, puzzles);
-		} catch (SQLException e) { e.printStackTrace(); }
+			planner.saveStats(conn);
+		} catch (SQLException | InterruptedException e) { e.printStackTrace(); }
 	}
 
 }
@@ -0,0 +1,274 @@
+package sudokuGenerator;
+
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+/**
+ * Serves random stored puzzles of each level from memory, in front of a PuzzleSource.
+ * 
+ * Each level keeps at most capacity resident puzzles in packed form (8 longs and 2
+ * ints each), and a puzzle is only restored to a SudokuPuzzle when it is served. A
+ * request is a hit if its level has a resident puzzle, which is picked at random.
+ * Otherwise it is a miss and the level is loaded on the calling thread, while other
+ * requests of the level wait for that load instead of starting their own.
+ * 
+ * A puzzle is evicted after it was served maxServes times, so the resident puzzles
+ * rotate through the stored ones. When a level falls below lowWater puzzles, a
+ * background thread prefetches enough puzzles to fill it up again, so a steady load
+ * is served from memory without waiting on the source. A loaded batch may repeat a
+ * resident puzzle, since the source picks at random. A level the source has no puzzle
+ * of is not asked for again until EMPTY_RETRY_NANOS passed.
+ */
+public class PuzzleCache implements AutoCloseable {
+
+	/**
+	 * The resident puzzles of one level.
+	 */
+	private static class Slots {
+
+		final int level;
+		final long[] words;		// the packed words, PACKED_WORDS per puzzle
+		final int[] difficulty;
+		final int[] serves;		// the number of times each puzzle was served
+		int size;
+		boolean loading;		// whether a prefetch is in flight
+		long emptyUntil;		// the time until which the source is known to be empty
+
+		Slots(int level, int capacity) {
+			this.level = level;
+			words = new long[capacity * PuzzleStore.PACKED_WORDS];
+			difficulty = new int[capacity];
+			serves = new int[capacity];
+		}
+
+		/**
+		 * Adds the puzzles of the given store while there is room.
+		 */
+		void add(PuzzleStore batch) {
+			for (int i = 0; i < batch.size() && size < difficulty.length; i++, size++) {
+				batch.copyPacked(i, words, size * PuzzleStore.PACKED_WORDS);
+				difficulty[size] = batch.getDifficulty(i);
+				serves[size] = 0;
+			}
+		}
+
+		/**
+		 * Removes the ith puzzle by moving the last puzzle into its slot.
+		 */
+		void evict(int i) {
+			int last = --size;
+			System.arraycopy(words, last * PuzzleStore.PACKED_WORDS, words,
+				i * PuzzleStore.PACKED_WORDS, PuzzleStore.PACKED_WORDS);
+			difficulty[i] = difficulty[last];
+			serves[i] = serves[last];
+		}
+
+	}
+
+	// the nanoseconds to wait before asking the source again for a level it had none of
+	static final long EMPTY_RETRY_NANOS = 1_000_000_000L;
+
+	private final PuzzleSource source;
+	private final int capacity;
+	private final int lowWater;
+	private final int maxServes;
+	private final Slots[] slots;
+	private final ExecutorService prefetcher;
+
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder evictions = new LongAdder();
+	private final AtomicLong loads = new AtomicLong();
+	private final AtomicLong loadedPuzzles = new AtomicLong();
+	private final AtomicLong loadFailures = new AtomicLong();
+	private final AtomicLong loadNanos = new AtomicLong();
+	private final AtomicLong maxLoadNanos = new AtomicLong();
+
+	/**
+	 * Generates an empty cache in front of the given source.
+	 * 
+	 * @param source the source of puzzles
+	 * @param capacity the maximal number of resident puzzles per level
+	 * @param lowWater the number of resident puzzles below which a level is prefetched
+	 * @param maxServes the number of times a puzzle is served before it is evicted
+	 */
+	public PuzzleCache(PuzzleSource source, int capacity, int lowWater, int maxServes) {
+		if (capacity < 1 || lowWater > capacity || maxServes < 1) {
+			throw new IllegalArgumentException("Invalid cache bounds");
+		}
+		this.source = source;
+		this.capacity = capacity;
+		this.lowWater = lowWater;
+		this.maxServes = maxServes;
+		slots = new Slots[7];
+		for (int lv = 1; lv <= 6; lv++) {
+			slots[lv] = new Slots(lv, capacity);
+		}
+		prefetcher = Executors.newSingleThreadExecutor(r -> {
+			Thread t = new Thread(r, "puzzle-prefetch");
+			t.setDaemon(true);
+			return t;
+		});
+	}
+
+	/**
+	 * Fills every level up to capacity on the calling thread.
+	 * 
+	 * @throws SQLException
+	 */
+	public void warm() throws SQLException {
+		for (int lv = 1; lv <= 6; lv++) {
+			Slots s = slots[lv];
+			synchronized (s) {
+				s.add(load(lv, capacity - s.size));
+			}
+		}
+	}
+
+	/**
+	 * Returns a random stored puzzle of the given level, loading the level from the
+	 * source if it has no resident puzzle.
+	 * 
+	 * @param level the level 1-6
+	 * @return a uniquely solvable sudoku puzzle of the given level, or null if the
+	 *         source has none
+	 * @throws SQLException
+	 */
+	public SudokuPuzzle get(int level) throws SQLException {
+		Slots s = slots[level];
+		long[] words = new long[PuzzleStore.PACKED_WORDS];
+		int diff;
+		synchronized (s) {
+			if (s.size > 0) {
+				hits.increment();
+			}
+			else {
+				misses.increment();
+				if (System.nanoTime() - s.emptyUntil < 0) return null;
+				s.add(load(level, capacity));
+				if (s.size == 0) {
+					s.emptyUntil = System.nanoTime() + EMPTY_RETRY_NANOS;
+					return null;
+				}
+			}
+			int i = ThreadLocalRandom.current().nextInt(s.size);
+			System.arraycopy(s.words, i * PuzzleStore.PACKED_WORDS, words, 0, PuzzleStore.PACKED_WORDS);
+			diff = s.difficulty[i];
+			if (++s.serves[i] >= maxServes) {
+				s.evict(i);
+				evictions.increment();
+			}
+			if (s.size < lowWater && !s.loading) {
+				s.loading = true;
+				prefetcher.execute(() -> prefetch(s));
+			}
+		}
+		return PuzzleStore.restorePuzzle(words, 0, diff);
+	}
+
+	/**
+	 * Loads puzzles of the level of the given slots in the background and adds them.
+	 */
+	private void prefetch(Slots s) {
+		int limit;
+		synchronized (s) { limit = capacity - s.size; }
+		PuzzleStore batch = null;
+		try {
+			batch = load(s.level, limit);
+		} catch (SQLException e) {
+			// the next request below lowWater retries
+		}
+		synchronized (s) {
+			if (batch != null) s.add(batch);
+			s.loading = false;
+		}
+	}
+
+	/**
+	 * Loads at most the given number of puzzles of the given level from the source and
+	 * records the load latency.
+	 */
+	private PuzzleStore load(int level, int limit) throws SQLException {
+		PuzzleStore batch = new PuzzleStore(limit);
+		if (limit <= 0) return batch;
+		long start = System.nanoTime();
+		try {
+			loadedPuzzles.addAndGet(source.load(level, limit, batch));
+		} catch (SQLException e) {
+			loadFailures.incrementAndGet();
+			throw e;
+		}
+		long nanos = System.nanoTime() - start;
+		loads.incrementAndGet();
+		loadNanos.addAndGet(nanos);
+		maxLoadNanos.accumulateAndGet(nanos, Math::max);
+		return batch;
+	}
+
+	/**
+	 * Returns the number of resident puzzles of the given level.
+	 * 
+	 * @param level the level 1-6
+	 * @return the number of resident puzzles
+	 */
+	public int size(int level) {
+		Slots s = slots[level];
+		synchronized (s) { return s.size; }
+	}
+
+	public long getHits() { return hits.sum(); }
+
+	public long getMisses() { return misses.sum(); }
+
+	public long getEvictions() { return evictions.sum(); }
+
+	public long getLoads() { return loads.get(); }
+
+	public long getLoadedPuzzles() { return loadedPuzzles.get(); }
+
+	public long getLoadFailures() { return loadFailures.get(); }
+
+	/**
+	 * Returns the fraction of requests served from resident puzzles.
+	 * 
+	 * @return the hit rate, or 0 if nothing was requested
+	 */
+	public double getHitRate() {
+		long h = hits.sum(), total = h + misses.sum();
+		return total > 0 ? (double) h / total : 0;
+	}
+
+	/**
+	 * Returns the mean milliseconds per load from the source.
+	 * 
+	 * @return the mean load latency, or 0 if nothing was loaded
+	 */
+	public double getMeanLoadMillis() {
+		long n = loads.get();
+		return n > 0 ? loadNanos.get() / 1e6 / n : 0;
+	}
+
+	public double getMaxLoadMillis() { return maxLoadNanos.get() / 1e6; }
+
+	public void printMetrics() {
+		System.out.println(String.format(
+			"hits %d, misses %d (hit rate %.1f%%), evictions %d, loads %d (%d puzzles, %d failed), " +
+			"load latency mean %.1f ms, max %.1f ms",
+			getHits(), getMisses(), getHitRate() * 100, getEvictions(), getLoads(),
+			getLoadedPuzzles(), getLoadFailures(), getMeanLoadMillis(), getMaxLoadMillis()));
+		int[] sizes = new int[6];
+		for (int lv = 1; lv <= 6; lv++) sizes[lv - 1] = size(lv);
+		System.out.println("resident puzzles of levels 1-6: " + Arrays.toString(sizes));
+	}
+
+	/**
+	 * Stops the prefetching thread.
+	 */
+	@Override
+	public void close() {
+		prefetcher.shutdownNow();
+	}
+
+}
@@ -1,6 +1,8 @@
 package sudokuGenerator;
 
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.stream.Stream;
 
 import sudokuGenerator.SudokuPuzzle.Solvable;
 
@@ -27,10 +29,43 @@ public class PuzzleGenerator {
 	static final int[] LV_MIN_DIFF = new int[] { 0, 26, 40, 50, 100, 200, 300 };
 	static final int[] LV_MAX_DIFF = new int[] { 0, 27, 41, 100, 200, 300, 2000 };
 	
+	// the number of solutions at which counting stops in generatePuzzleFromTemplate
+	static final int MAX_COUNT = 64;
+	
+	// the grids checking clue removals, one per thread
+	private static final ThreadLocal<Grid> SCRATCH = ThreadLocal.withInitial(Grid::new);
+	
 	private Random rand;
+	private MutationOperator operator;
 	
 	public PuzzleGenerator(long seed) {
 		rand = new Random(seed);
+		operator = new RandomMutationOperator();
+	}
+	
+	/**
+	 * Generates a puzzle generator drawing from the given random generator, such as one 
+	 * restored by PuzzleInventory to continue the sequence of a previous process.
+	 * 
+	 * @param rand the random generator
+	 */
+	PuzzleGenerator(Random rand) {
+		this.rand = rand;
+		operator = new RandomMutationOperator();
+	}
+	
+	/**
+	 * Returns the random generator, whose state determines all puzzles generated next.
+	 */
+	Random getRandom() { return rand; }
+	
+	/**
+	 * Sets the move used to change puzzles. The default is RandomMutationOperator.
+	 * 
+	 * @param operator the mutation operator
+	 */
+	public void setMutationOperator(MutationOperator operator) {
+		this.operator = operator;
 	}
 	
 	/**
@@ -43,132 +78,103 @@ public class PuzzleGenerator {
 		List<int[][]> boards = new ArrayList<int[][]>();
 		
 		for (int n = 0; n < num; n++) {
-			int[][] board = new int[9][9];
-			boolean[] flag = new boolean[10];
-			
-			// randomly fills the top-most 3 blocks by
-			for (int k = 0; k < 9; k += 3) {				// block
-				for (int i = 0; i < 3; i++) {				// row
-					while (true) {
-						validate(board, i, k, flag);
-						for (int j = k; j < k + 3; j++) {	// cell
-							int r = randomCandidate(flag);
-							board[i][j] = r;
-							flag[r] = false;
-						}
-						// for the second row of the middle block, after randomly
-						// filling numbers, check if the next row has 3 candidates.
-						// If not, revert and try again.
-						if (k != 3 || i != 1) break;
-						validate(board, i + 1, k, flag);
-						if (numOfcandidates(flag) == 3) break;
-						for (int j = k; j < k + 3; j++) {
-							board[i][j] = 0;
-						}
+			boards.add(generateBoard());
+		}
+		
+		return boards;
+	}
+	
+	/**
+	 * Returns a randomly generated 9*9 sudoku board. The board is built on a Grid, with 
+	 * the candidates of a cell read from its set masks.
+	 * 
+	 * @return a randomly generated sudoku board
+	 */
+	public int[][] generateBoard() {
+		Grid grid = new Grid();
+		
+		// randomly fills the top-most 3 blocks by
+		for (int k = 0; k < 9; k += 3) {				// block
+			for (int i = 0; i < 3; i++) {				// row
+				while (true) {
+					int flag = grid.candidatesOf(i * 9 + k);
+					for (int j = k; j < k + 3; j++) {	// cell
+						int r = randomCandidate(flag);
+						grid.fill(i * 9 + j, r);
+						flag &= ~(1 << r);
+					}
+					// for the second row of the middle block, after randomly
+					// filling numbers, check if the next row has 3 candidates.
+					// If not, revert and try again.
+					if (k != 3 || i != 1) break;
+					if (Integer.bitCount(grid.candidatesOf((i + 1) * 9 + k)) == 3) break;
+					for (int j = k; j < k + 3; j++) {
+						grid.clear(i * 9 + j);
 					}
 				}
 			}
-			
-			// randomly fills the left-most 2 blocks except the one at the top
-			for (int k = 3; k < 9; k += 3) {				// block
-				for (int j = 0; j < 3; j++) {				// column
-					while (true) {
-						validate(board, k, j, flag);
-						for (int i = k; i < k + 3; i++) {	// cell
-							int r = randomCandidate(flag);
-							board[i][j] = r;
-							flag[r] = false;
-						}
-						// for the second column of the middle block, after randomly
-						// filling numbers, checks if the next column has 3 candidates.
-						// If not, revert and try again.
-						if (k != 3 || j != 1) break;
-						validate(board, k, j + 1, flag);
-						if (numOfcandidates(flag) == 3) break;
-						for (int i = k; i < k + 3; i++) {
-							board[i][j] = 0;
-						}
+		}
+		
+		// randomly fills the left-most 2 blocks except the one at the top
+		for (int k = 3; k < 9; k += 3) {				// block
+			for (int j = 0; j < 3; j++) {				// column
+				while (true) {
+					int flag = grid.candidatesOf(k * 9 + j);
+					for (int i = k; i < k + 3; i++) {	// cell
+						int r = randomCandidate(flag);
+						grid.fill(i * 9 + j, r);
+						flag &= ~(1 << r);
+					}
+					// for the second column of the middle block, after randomly
+					// filling numbers, checks if the next column has 3 candidates.
+					// If not, revert and try again.
+					if (k != 3 || j != 1) break;
+					if (Integer.bitCount(grid.candidatesOf(k * 9 + j + 1)) == 3) break;
+					for (int i = k; i < k + 3; i++) {
+						grid.clear(i * 9 + j);
 					}
 				}
 			}
-			
-			solve(board, 30);	// solves the other 4 blocks
-			boards.add(board);
 		}
 		
-		return boards;
+		solve(grid, 30);	// solves the other 4 blocks
+		return grid.toBoard();
 	}
 	
 	/**
 	 * Returns a random valid candidate.
 	 * 
-	 * @param flag the array of whether each of the digits 1-9 is valid
+	 * @param flag the candidate mask, bit v set if v is valid
 	 * @return a random valid candidate
 	 */
-	private int randomCandidate(boolean[] flag) {
+	private int randomCandidate(int flag) {
 		while (true) {
 			int r = rand.nextInt(9) + 1;
-			if (flag[r]) return r;
-		}
-	}
-	
-	/**
-	 * Returns the number of valid candidates in the given flag.
-	 * 
-	 * @param flag the array of whether each of the digits 1-9 is valid
-	 * @return the number of valid candidates in flag
-	 */
-	private int numOfcandidates(boolean[] flag) {
-		int res = 0;
-		for (int k = 1; k <= 9; k++) {
-			if (flag[k]) res++;
+			if ((flag & 1 << r) != 0) return r;
 		}
-		return res;
 	}
 	
 	/**
-	 * Backtracks to determine if the given board is solvable, and fills the board
+	 * Backtracks to determine if the given grid is solvable, and fills the grid
 	 * with the solution.
 	 * 
-	 * @param board the 9*9 sudoku board
+	 * @param grid the grid with up-to-date set masks
 	 * @param p the cell number to start with
 	 * @return true if the sudoku is solvable, otherwise returns false
 	 */
-	private boolean solve(int[][] board, int p) {
+	private boolean solve(Grid grid, int p) {
 		if (p == 81) return true;	// solution found
-		int i = p / 9;
-		int j = p % 9;
-		if (board[i][j] > 0) return solve(board, p + 1);	// skips filled cell
+		if (!grid.isEmpty(p)) return solve(grid, p + 1);	// skips filled cell
 		
-		boolean[] flag = new boolean[10];
-		validate(board, i, j, flag);
+		int flag = grid.candidatesOf(p);
 		for (int k = 1; k <= 9; k++) {	// tries with each valid candidate
-			if (flag[k]) {
-				board[i][j] = k;
-				if (solve(board, p + 1)) return true;	// solves next cell
+			if ((flag & 1 << k) != 0) {
+				grid.fill(p, k);
+				if (solve(grid, p + 1)) return true;	// solves next cell
+				grid.clear(p);
 			}
 		}
-		board[i][j] = 0;	// board not solvable, reverts filled value
-		return false;
-	}
-	
-	/**
-	 * Updates flag for the given cell by checking its row, column and block.
-	 * 
-	 * @param board the 9*9 sudoku board
-	 * @param i the index of row
-	 * @param j the index of column
-	 * @param flag the array of whether each of the digits 1-9 is valid
-	 */
-	private void validate(int[][] board, int i, int j, boolean[] flag) {
-		Arrays.fill(flag, true);
-		for (int k = 0; k < 9; k++) {
-			if (board[i][k] > 0) flag[board[i][k]] = false;	// validate row
-			if (board[k][j] > 0) flag[board[k][j]] = false;	// validate column
-			int r = i / 3 * 3 + k / 3;
-			int c = j / 3 * 3 + k % 3;
-			if (board[r][c] > 0) flag[board[r][c]] = false;	// validate block
-		}
+		return false;	// grid not solvable
 	}
 	
 	/**
@@ -182,25 +188,34 @@ public class PuzzleGenerator {
 		SudokuPuzzle puzzle = new SudokuPuzzle(board, board);
 		
 		// keeps tracks of the puzzle with the greatest difficulty
-		SudokuPuzzle best = new SudokuPuzzle(puzzle);
+		SudokuPuzzle.Snapshot best = puzzle.snapshot();
 		int maxDifficulty = 0;
 		
 		for (int i = 0; i < 200; i++) {	// fixed rounds to control runtime
-			puzzle = best;	// restarts with the current best puzzle
-			best = new SudokuPuzzle(best);
+			puzzle.restore(best);	// restarts with the current best puzzle
+			operator.reset(puzzle, board, Integer.MAX_VALUE);
 			for (int j = 0; j < 20; j++) {
-				randomOperate(puzzle, board);
+				operator.mutate(puzzle, board, rand);
 				if (puzzle.uniquelySolvable()) {
 					int diff = puzzle.getDifficulty();
 					// updates the best puzzle and difficulty accordingly
 					if (maxDifficulty < diff) {
 						maxDifficulty = diff;
-						best = new SudokuPuzzle(puzzle);
+						best = puzzle.snapshot();
 					}
 				}
 			}
 		}
 		
+		return settled(puzzle);
+	}
+	
+	/**
+	 * Returns the given puzzle with its lazily computed difficulty and solution up to 
+	 * date, so its getters only read and it can be shared across threads.
+	 */
+	private static SudokuPuzzle settled(SudokuPuzzle puzzle) {
+		puzzle.ensureUpdated();
 		return puzzle;
 	}
 	
@@ -216,24 +231,24 @@ public class PuzzleGenerator {
 		SudokuPuzzle puzzle = new SudokuPuzzle(board, board);
 		
 		// keeps tracks of the puzzle with the greatest difficulty
-		SudokuPuzzle best = new SudokuPuzzle(puzzle);
+		SudokuPuzzle.Snapshot best = puzzle.snapshot();
 		int maxDifficulty = 0;
 		
 		for (int i = 0; i < 200; i++) {	// fixed rounds to control runtime
-			puzzle = best;	// restarts with the current best puzzle
-			best = new SudokuPuzzle(best);
+			puzzle.restore(best);	// restarts with the current best puzzle
+			operator.reset(puzzle, board, LV_MAX_DIFF[level]);
 			for (int j = 0; j < 20; j++) {
-				randomOperate(puzzle, board);
+				operator.mutate(puzzle, board, rand);
 				if (puzzle.uniquelySolvable()) {
 					int diff = puzzle.getDifficulty();
 					// if puzzle is of the desired level, directly returns it
 					if (diff >= LV_MIN_DIFF[level] && diff < LV_MAX_DIFF[level]) {
-						return puzzle;
+						return settled(puzzle);
 					}
 					// updates the best puzzle and difficulty accordingly
 					if (maxDifficulty <= diff && diff < LV_MAX_DIFF[level]) {
 						maxDifficulty = diff;
-						best = new SudokuPuzzle(puzzle);
+						best = puzzle.snapshot();
 					}
 				}
 			}
@@ -241,33 +256,242 @@ public class PuzzleGenerator {
 		
 		int final_diff = puzzle.getDifficulty();
 		if (final_diff >= LV_MIN_DIFF[level] && final_diff < LV_MAX_DIFF[level]) {
-			return puzzle;
+			return settled(puzzle);
 		}
 		return null;
 	}
 	
 	/**
-	 * Randomly adds or removes a pair of cells to / from the puzzle.
+	 * Returns a random minimal puzzle from the given board with at most the given number 
+	 * of clues if generated in the fixed amount of rounds. No clue of a minimal puzzle 
+	 * can be removed without losing uniqueness. Clue removals are checked in parallel on 
+	 * the common pool.
+	 * 
+	 * @param board the 9*9 sudoku board
+	 * @param maxClues the maximal number of clues, 17-81
+	 * @return a minimal puzzle with the fewest clues generated, or null if none has at 
+	 *         most maxClues clues
+	 */
+	public SudokuPuzzle generateMinimalPuzzle(int[][] board, int maxClues) {
+		return generateMinimalPuzzle(board, maxClues, ForkJoinPool.commonPool());
+	}
+	
+	/**
+	 * Returns a random minimal puzzle from the given board with at most the given number 
+	 * of clues if generated in the fixed amount of rounds, checking clue removals in 
+	 * parallel on the given pool. The puzzle does not depend on the parallelism.
 	 * 
-	 * @param puzzle the puzzle to operate on
-	 * @param board the original board
+	 * @param board the 9*9 sudoku board
+	 * @param maxClues the maximal number of clues, 17-81
+	 * @param pool the pool to check clue removals on
+	 * @return a minimal puzzle with the fewest clues generated, or null if none has at 
+	 *         most maxClues clues
 	 */
-	private void randomOperate(SudokuPuzzle puzzle, int[][] board) {
-		// generates a random cell
-		int n = rand.nextInt(81), r = n / 9, c = n % 9;
+	public SudokuPuzzle generateMinimalPuzzle(int[][] board, int maxClues, ForkJoinPool pool) {
+		Grid grid = new Grid();
+		int[][] best = null;
+		int minClues = 82;
 		
-		if (rand.nextBoolean()) {
-			// removes a pair
-			puzzle.setVal(r, c, 0);
-			puzzle.setVal(8 - r, 8 - c, 0);
+		for (int i = 0; i < 200 && minClues > maxClues; i++) {	// fixed rounds to control runtime
+			int numClues = minimize(grid, board, pool);
+			if (numClues < minClues) {
+				minClues = numClues;
+				best = grid.toBoard();
+			}
 		}
-		else {
-			// adds a pair with the original values
-			puzzle.setVal(r, c, board[r][c]);
-			puzzle.setVal(8 - r, 8 - c, board[8 - r][8 - c]);
+		
+		return minClues <= maxClues ? new SudokuPuzzle(best, board) : null;
+	}
+	
+	/**
+	 * Removes the clues of the given grid one by one in a random order, keeping each clue 
+	 * whose removal loses uniqueness. Since removing more clues never restores 
+	 * uniqueness, a kept clue stays unremovable and the result is minimal.
+	 * 
+	 * The next clues in the order are checked in parallel, a batch of the pool's 
+	 * parallelism at a time, against the current grid. The first removable clue of the 
+	 * batch is removed, the unremovable ones before and after it are kept, and the 
+	 * removable ones after it are checked again against the new grid, so the result is 
+	 * the same as checking the clues one by one.
+	 * 
+	 * @param grid the grid, reloaded with the full board
+	 * @param board the 9*9 sudoku board
+	 * @param pool the pool to check clue removals on
+	 * @return the number of clues of the minimal puzzle
+	 */
+	private int minimize(Grid grid, int[][] board, ForkJoinPool pool) {
+		grid.load(board, board);
+		
+		// shuffles the cells
+		int[] order = new int[81];
+		for (int p = 0; p < 81; p++) {
+			order[p] = p;
+		}
+		for (int k = 80; k > 0; k--) {
+			int m = rand.nextInt(k + 1), p = order[k];
+			order[k] = order[m];
+			order[m] = p;
 		}
 		
-		puzzle.updatePuzzle();
+		int batch = Math.min(pool.getParallelism(), 81);
+		boolean[] removable = new boolean[batch];
+		int numClues = 81;
+		for (int k = 0; k < 81; ) {
+			int n = Math.min(batch, 81 - k);
+			if (n == 1) {
+				removable[0] = grid.isRemovable(order[k]);
+			}
+			else {
+				checkRemovals(grid, order, k, n, removable, pool);
+			}
+			
+			int first = 0;
+			while (first < n && !removable[first]) first++;
+			if (first == n) {	// keeps the whole batch
+				k += n;
+				continue;
+			}
+			grid.setVal(order[k + first], 0);	// removes the first removable clue
+			numClues--;
+			
+			// moves the removable clues after it right before the unchecked ones, in order
+			int next = k + n;
+			for (int m = n - 1; m > first; m--) {
+				if (removable[m]) order[--next] = order[k + m];
+			}
+			k = next;
+		}
+		return numClues;
+	}
+	
+	/**
+	 * Checks the removal of the given clues of the order in parallel.
+	 */
+	private static void checkRemovals(
+		Grid grid, int[] order, int from, int n, boolean[] removable, ForkJoinPool pool
+	) {
+		List<Callable<Boolean>> checks = new ArrayList<Callable<Boolean>>(n);
+		for (int m = 0; m < n; m++) {
+			int p = order[from + m];
+			checks.add(() -> {
+				Grid scratch = SCRATCH.get();
+				scratch.copyFrom(grid);
+				return scratch.isRemovable(p);
+			});
+		}
+		try {
+			List<Future<Boolean>> results = pool.invokeAll(checks);
+			for (int m = 0; m < n; m++) {
+				removable[m] = results.get(m).get();
+			}
+		} catch (InterruptedException | ExecutionException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+	
+	/**
+	 * Returns a random puzzle of the given level whose givens are exactly the givens of 
+	 * the given template, if generated in the fixed amount of rounds.
+	 * 
+	 * Instead of testing whole boards one by one, the search changes the values of the 
+	 * givens. A round starts with the values of a random board, so the givens have a 
+	 * solution. Each step sets a random given to the value leaving the fewest 
+	 * solutions, and a value leaving no solution is never chosen. Solutions are only 
+	 * counted up to MAX_COUNT, which cuts off the search of a value early. A uniquely 
+	 * solvable puzzle of another level takes a random other value and the search goes 
+	 * on. A round ends after 100 steps without a new lowest count, and a template that 
+	 * cannot have a unique solution is rejected upfront.
+	 * 
+	 * @param template the givens template
+	 * @param level the level 1-6, or 0 for any level
+	 * @return a randomly generated puzzle with the givens of the template, or null if 
+	 *         none generated
+	 */
+	public SudokuPuzzle generatePuzzleFromTemplate(GivensTemplate template, int level) {
+		if (!template.mayBeUnique()) return null;
+		int[] cells = template.getCells();
+		Grid grid = new Grid();
+		
+		for (int i = 0; i < 20; i++) {	// fixed rounds to control runtime
+			// starts with the values of a random board
+			int[][] board = generateBoard();
+			for (int p = 0; p < 81; p++) {
+				grid.setVal(p, template.isGiven(p) ? board[p / 9][p % 9] : 0);
+			}
+			int count = grid.countSolutions(MAX_COUNT);
+			int minCount = count, lastProgress = 0;
+			
+			// fixed steps, and a round stalled at a count is given up
+			for (int j = 0; j < 500 && j - lastProgress < 100; j++) {
+				boolean unique = count == 1;
+				if (unique) {
+					SudokuPuzzle puzzle = toPuzzle(grid);
+					int diff = puzzle.getDifficulty();
+					if (level == 0 || (diff >= LV_MIN_DIFF[level] && diff < LV_MAX_DIFF[level])) {
+						return puzzle;
+					}
+				}
+				
+				// sets a random given to the value with the fewest solutions
+				int p = cells[rand.nextInt(cells.length)];
+				int val = grid.getVal(p);
+				grid.setVal(p, 0);
+				grid.updateUsed();
+				int flag = grid.candidatesOf(p);
+				if (unique) flag &= ~(1 << val);	// leaves a puzzle of another level
+				int best = val, bestCount = unique ? Integer.MAX_VALUE : count, ties = 1;
+				for (int k = 1; k <= 9; k++) {
+					if ((flag & 1 << k) == 0 || k == val && !unique) continue;
+					grid.setVal(p, k);
+					// counts below the limit are exact, so only better values are counted out
+					int n = grid.countSolutions(bestCount < MAX_COUNT ? bestCount + 1 : MAX_COUNT);
+					if (n == 0) continue;
+					if (n < bestCount) {
+						best = k;
+						bestCount = n;
+						ties = 1;
+					}
+					else if (n == bestCount && rand.nextInt(++ties) == 0) {
+						best = k;
+					}
+				}
+				grid.setVal(p, best);
+				if (best != val) count = bestCount;
+				if (count < minCount) {
+					minCount = count;
+					lastProgress = j;
+				}
+			}
+		}
+		
+		return null;
+	}
+	
+	/**
+	 * Returns the uniquely solvable puzzle of the given grid, with its solution.
+	 */
+	private static SudokuPuzzle toPuzzle(Grid grid) {
+		int[][] puzzleBoard = grid.toBoard();
+		int[][] board = new SudokuPuzzle(puzzleBoard, puzzleBoard).getSolution();
+		return new SudokuPuzzle(puzzleBoard, board);
+	}
+	
+	/**
+	 * Returns an infinite stream of uniquely solvable puzzles of the given level. Each 
+	 * puzzle is generated from a new board only when the stream pulls it, so the first 
+	 * puzzle is available as soon as it is generated. Limit the stream to stop.
+	 * 
+	 * The stream shares this generator and must be consumed sequentially. See 
+	 * PuzzlePublisher for parallel production.
+	 * 
+	 * @param level the level 1-6, or 0 for puzzles of maximal difficulty
+	 * @return the lazy stream of puzzles
+	 */
+	public Stream<SudokuPuzzle> puzzles(int level) {
+		return Stream.generate(() -> level == 0
+				? generatePuzzle(generateBoard())
+				: generatePuzzleByLevel(generateBoard(), level))
+			.filter(sp -> sp != null && sp.uniquelySolvable());
 	}
 	
 	public void printBoards(List<int[][]> boards) {
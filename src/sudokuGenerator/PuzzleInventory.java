@@ -0,0 +1,176 @@
+package sudokuGenerator;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Keeps a stock of generated puzzles of each level that survives restarts.
+ * 
+ * Puzzles are served from the stock and generated on demand only when the stock of a
+ * level is empty. On save, the unserved puzzles are written in the packed form of
+ * PuzzleStore together with the state of the generator's Random. On load, puzzles are
+ * restored from their snapshot without solving them again, so the first puzzle is
+ * served as soon as the file is read, and the generator continues the random sequence
+ * where the previous process stopped instead of generating its puzzles again.
+ * 
+ * The file starts with a magic number and a version, followed by the serialized
+ * Random and the puzzles. Only java.util.Random is accepted when deserializing.
+ */
+public class PuzzleInventory {
+
+	private static final int MAGIC = 0x53444B49;	// "SDKI"
+	private static final int VERSION = 1;
+
+	private final PuzzleGenerator pg;
+	private PuzzleStore store;
+	private final int[] served;		// the number of served puzzles of each level in the store
+
+	/**
+	 * Generates an empty inventory with the given seed.
+	 * 
+	 * @param seed the seed of the generator
+	 */
+	public PuzzleInventory(long seed) {
+		this(new Random(seed), new PuzzleStore());
+	}
+
+	private PuzzleInventory(Random rand, PuzzleStore store) {
+		pg = new PuzzleGenerator(rand);
+		this.store = store;
+		served = new int[7];
+	}
+
+	/**
+	 * Returns the generator, e.g. to set its mutation operator. The operator state is
+	 * not saved.
+	 */
+	public PuzzleGenerator getGenerator() { return pg; }
+
+	/**
+	 * Returns the number of unserved puzzles of the given level.
+	 * 
+	 * @param level the level 1-6
+	 * @return the number of puzzles in stock
+	 */
+	public synchronized int stock(int level) {
+		return store.size(level) - served[level];
+	}
+
+	/**
+	 * Returns a puzzle of the given level from the stock, or generates one if the stock
+	 * of the level is empty.
+	 * 
+	 * @param level the level 1-6
+	 * @return a uniquely solvable sudoku puzzle of the given level, or null if none was
+	 *         generated in the fixed amount of attempts
+	 */
+	public synchronized SudokuPuzzle take(int level) {
+		if (stock(level) > 0) {
+			return store.restorePuzzle(store.indexOf(level, served[level]++));
+		}
+		return generate(level);
+	}
+
+	/**
+	 * Generates puzzles of the given level until its stock holds the given number.
+	 * 
+	 * @param level the level 1-6
+	 * @param target the number of puzzles to keep in stock
+	 * @return the number of puzzles generated
+	 */
+	public synchronized int fill(int level, int target) {
+		int num = 0;
+		while (stock(level) < target) {
+			SudokuPuzzle sp = generate(level);
+			if (sp == null) break;
+			store.append(sp);
+			num++;
+		}
+		return num;
+	}
+
+	/**
+	 * Returns a new puzzle of the given level, or null if none was generated in the
+	 * attempts the generation planner allows per puzzle.
+	 */
+	private SudokuPuzzle generate(int level) {
+		for (int i = 0; i < GenerationPlanner.MAX_ATTEMPTS_PER_PUZZLE; i++) {
+			SudokuPuzzle sp = pg.generatePuzzleByLevel(pg.generateBoard(), level);
+			if (sp != null && sp.uniquelySolvable()) return sp;
+		}
+		return null;
+	}
+
+	/**
+	 * Saves the unserved puzzles and the generator state to the given file. The file is
+	 * written next to its target and moved into place, so a crash while saving leaves
+	 * the previous file intact.
+	 * 
+	 * @param file the inventory file
+	 * @throws IOException
+	 */
+	public synchronized void save(Path file) throws IOException {
+		// drops the served puzzles
+		PuzzleStore unserved = new PuzzleStore(store.size());
+		for (int lv = 1; lv <= 6; lv++) {
+			for (int k = served[lv]; k < store.size(lv); k++) {
+				unserved.append(store, store.indexOf(lv, k));
+			}
+		}
+		store = unserved;
+		Arrays.fill(served, 0);
+
+		Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+		try (ObjectOutputStream out = new ObjectOutputStream(
+				new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeObject(pg.getRandom());
+			store.writeTo(out);
+		}
+		Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	/**
+	 * Loads an inventory saved to the given file, or generates an empty inventory with
+	 * the given seed if the file does not exist.
+	 * 
+	 * @param file the inventory file
+	 * @param seed the seed of the generator if the file does not exist
+	 * @return the inventory
+	 * @throws IOException if the file is malformed or cannot be read
+	 */
+	public static PuzzleInventory load(Path file, long seed) throws IOException {
+		if (!Files.exists(file)) return new PuzzleInventory(seed);
+
+		try (ObjectInputStream in = new ObjectInputStream(
+				new BufferedInputStream(Files.newInputStream(file)))) {
+			in.setObjectInputFilter(ObjectInputFilter.Config.createFilter("java.util.Random;!*"));
+			if (in.readInt() != MAGIC) throw new IOException("Not an inventory file: " + file);
+			int version = in.readInt();
+			if (version != VERSION) throw new IOException("Unsupported inventory version: " + version);
+			Random rand = (Random) in.readObject();
+			return new PuzzleInventory(rand, PuzzleStore.readFrom(in));
+		} catch (ClassNotFoundException | ClassCastException e) {
+			throw new IOException("Malformed inventory file: " + file, e);
+		}
+	}
+
+	/**
+	 * Saves the inventory to the given file when the JVM shuts down normally.
+	 * 
+	 * @param file the inventory file
+	 */
+	public void saveOnShutdown(Path file) {
+		Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+			try {
+				save(file);
+			} catch (IOException e) {
+				System.err.println("Failed to save the puzzle inventory: " + e.getMessage());
+			}
+		}, "inventory-save"));
+	}
+
+}
@@ -0,0 +1,107 @@
+package sudokuGenerator;
+
+import java.util.concurrent.*;
+
+/**
+ * Publishes an unbounded sequence of generated puzzles of one level to any number of
+ * subscribers, such as the database writer or an exporter.
+ * 
+ * Puzzles are generated by a fixed number of producer threads, each with its own
+ * PuzzleGenerator seeded from the master seed and the producer index. Production
+ * starts on the first subscription and stops when the publisher is closed or all
+ * subscribers have cancelled. Each subscriber buffers at most bufferSize puzzles it has
+ * not requested yet; when a buffer is full, producers block until the subscriber
+ * requests more, so generation follows the demand of the slowest subscriber.
+ */
+public class PuzzlePublisher implements Flow.Publisher<SudokuPuzzle>, AutoCloseable {
+
+	private final long seed;
+	private final int level;
+	private final int producers;
+	private final SubmissionPublisher<SudokuPuzzle> publisher;
+	private ExecutorService executor;	// the producer threads
+	private int running;				// the number of running producers
+	private int started;				// the number of producers ever started
+
+	/**
+	 * Generates a publisher of puzzles of the given level.
+	 * 
+	 * @param seed the master seed
+	 * @param level the level 1-6, or 0 for puzzles of maximal difficulty
+	 * @param producers the number of producer threads
+	 * @param bufferSize the maximal number of unrequested puzzles per subscriber
+	 */
+	public PuzzlePublisher(long seed, int level, int producers, int bufferSize) {
+		this.seed = seed;
+		this.level = level;
+		this.producers = producers;
+		publisher = new SubmissionPublisher<SudokuPuzzle>(ForkJoinPool.commonPool(), bufferSize);
+	}
+
+	@Override
+	public synchronized void subscribe(Flow.Subscriber<? super SudokuPuzzle> subscriber) {
+		publisher.subscribe(subscriber);
+		if (running > 0 || publisher.isClosed()) return;
+
+		if (executor == null) {
+			executor = Executors.newFixedThreadPool(producers, r -> {
+				Thread t = new Thread(r, "puzzle-producer");
+				t.setDaemon(true);
+				return t;
+			});
+		}
+		// restarts the producers with fresh seeds after all subscribers cancelled
+		for (int t = 0; t < producers; t++) {
+			startProducer();
+		}
+	}
+
+	/**
+	 * Starts a producer with the next seed. Called while holding the lock.
+	 */
+	private void startProducer() {
+		PuzzleGenerator pg = new PuzzleGenerator(ShardWorker.boardSeed(seed, started++));
+		running++;
+		executor.execute(() -> produce(pg));
+	}
+
+	/**
+	 * Generates puzzles with the given generator while anyone is subscribed. A producer 
+	 * that stops because nobody was subscribed starts over if someone subscribed while 
+	 * it was stopping, since subscribe() counts it as running until then.
+	 * 
+	 * @param pg the generator of the producer thread
+	 */
+	private void produce(PuzzleGenerator pg) {
+		boolean stopped = false;
+		try {
+			pg.puzzles(level)
+				.takeWhile(sp -> !publisher.isClosed() && publisher.hasSubscribers())
+				.forEach(sp -> {
+					try {
+						publisher.submit(sp);	// blocks while a subscriber buffer is full
+					} catch (IllegalStateException e) {
+						// closed while generating
+					}
+				});
+			stopped = true;
+		} finally {
+			synchronized (this) {
+				running--;
+				if (stopped && !publisher.isClosed() && publisher.hasSubscribers()) {
+					startProducer();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Stops the producers and completes all subscribers.
+	 */
+	@Override
+	public synchronized void close() {
+		publisher.close();
+		if (executor != null) executor.shutdownNow();
+	}
+
+}
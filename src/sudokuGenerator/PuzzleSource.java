@@ -0,0 +1,26 @@
+package sudokuGenerator;
+
+import java.sql.SQLException;
+
+/**
+ * Loads stored puzzles of a level in bulk, for PuzzleCache.
+ * 
+ * JdbcPuzzleSource reads the puzzles and puzzle_cells tables written by 
+ * PostgreSqlConnection.insertPuzzles. MemoryPuzzleSource serves a PuzzleStore and 
+ * stands in for the database in tests and benchmarks.
+ */
+public interface PuzzleSource {
+
+	/**
+	 * Loads at most the given number of random puzzles of the given level and appends 
+	 * them to the given store.
+	 * 
+	 * @param level the level 1-6
+	 * @param limit the maximal number of puzzles to load
+	 * @param store the store to append the puzzles to
+	 * @return the number of puzzles loaded
+	 * @throws SQLException
+	 */
+	int load(int level, int limit, PuzzleStore store) throws SQLException;
+
+}
@@ -0,0 +1,384 @@
+package sudokuGenerator;
+
+import java.io.*;
+import java.util.Arrays;
+
+/**
+ * Stores sudoku puzzles in packed primitive columns instead of SudokuPuzzle objects.
+ * 
+ * Each puzzle takes 73 bytes including its entry in the level index:
+ * 
+ *   givens:     2 longs, one bit per cell (cells 0-63 in the first long, 64-80 in the
+ *               second)
+ *   solution:   6 longs, four bits per cell (cells 16k to 16k+15 in the kth long)
+ *   level:      1 byte
+ *   difficulty: 1 int
+ * 
+ * Puzzles are referred to by their index in the order they were appended. Each level
+ * keeps an index of its puzzles, so the puzzles of a level can be scanned without
+ * visiting the others. A puzzle is converted back to a SudokuPuzzle only on demand.
+ */
+public class PuzzleStore {
+
+	static final int GIVENS_WORDS = 2;
+	static final int SOLUTION_WORDS = 6;
+	static final int PACKED_WORDS = GIVENS_WORDS + SOLUTION_WORDS;
+
+	// the maximal number of puzzles, so that the index of a solution word fits an int
+	static final int MAX_SIZE = Integer.MAX_VALUE / SOLUTION_WORDS;
+
+	private long[] givens;
+	private long[] solution;
+	private byte[] level;
+	private int[] difficulty;
+	private int size;
+
+	private int[][] levelIndex;		// the puzzle indices of each level
+	private int[] levelSize;		// the number of puzzles of each level
+
+	public PuzzleStore() {
+		this(1024);
+	}
+
+	/**
+	 * Generates a puzzle store with the given initial capacity.
+	 * 
+	 * @param capacity the number of puzzles to allocate room for
+	 * @throws IllegalArgumentException if the capacity exceeds MAX_SIZE
+	 */
+	public PuzzleStore(int capacity) {
+		if (capacity > MAX_SIZE) throw new IllegalArgumentException("Capacity exceeds " + MAX_SIZE + ": " + capacity);
+		capacity = Math.max(capacity, 16);
+		givens = new long[capacity * GIVENS_WORDS];
+		solution = new long[capacity * SOLUTION_WORDS];
+		level = new byte[capacity];
+		difficulty = new int[capacity];
+		levelIndex = new int[7][];
+		levelSize = new int[7];
+		for (int l = 1; l <= 6; l++) {
+			levelIndex[l] = new int[16];
+		}
+	}
+
+	/**
+	 * Appends the given sudoku puzzle.
+	 * 
+	 * @param sp the sudoku puzzle
+	 * @return the index of the appended puzzle
+	 */
+	public int append(SudokuPuzzle sp) {
+		long g0 = 0, g1 = 0;
+		long[] slt = new long[SOLUTION_WORDS];
+		for (int p = 0; p < 81; p++) {
+			if (sp.getVal(p) != 0) {
+				if (p < 64) g0 |= 1L << p;
+				else g1 |= 1L << (p - 64);
+			}
+			slt[p >> 4] |= (long) sp.getSltVal(p) << ((p & 15) << 2);
+		}
+		return append(g0, g1, slt, sp.getLevel(), sp.getDifficulty());
+	}
+
+	/**
+	 * Appends a puzzle from its puzzle board and solution board.
+	 * 
+	 * @param puzzleBoard the 9*9 board with 0 for empty cells
+	 * @param board the 9*9 solution board
+	 * @param lv the level 1-6
+	 * @param diff the difficulty
+	 * @return the index of the appended puzzle
+	 * @throws IllegalArgumentException if the level is not 1-6
+	 */
+	public int append(int[][] puzzleBoard, int[][] board, int lv, int diff) {
+		long g0 = 0, g1 = 0;
+		long[] slt = new long[SOLUTION_WORDS];
+		for (int p = 0; p < 81; p++) {
+			if (puzzleBoard[p / 9][p % 9] > 0) {
+				if (p < 64) g0 |= 1L << p;
+				else g1 |= 1L << (p - 64);
+			}
+			slt[p >> 4] |= (long) board[p / 9][p % 9] << ((p & 15) << 2);
+		}
+		return append(g0, g1, slt, lv, diff);
+	}
+	
+	/**
+	 * Appends a puzzle in its packed form.
+	 * 
+	 * @param g0 the givens of cells 0-63
+	 * @param g1 the givens of cells 64-80
+	 * @param slt the 6 packed solution words
+	 * @param lv the level 1-6
+	 * @param diff the difficulty
+	 * @return the index of the appended puzzle
+	 * @throws IllegalArgumentException if the level is not 1-6, before anything is stored
+	 */
+	int append(long g0, long g1, long[] slt, int lv, int diff) {
+		checkLevel(lv);
+		if (size == level.length) grow();
+		int i = size++;
+		givens[i * GIVENS_WORDS] = g0;
+		givens[i * GIVENS_WORDS + 1] = g1;
+		System.arraycopy(slt, 0, solution, i * SOLUTION_WORDS, SOLUTION_WORDS);
+		level[i] = (byte) lv;
+		difficulty[i] = diff;
+
+		// updates the level index
+		if (levelSize[lv] == levelIndex[lv].length) {
+			levelIndex[lv] = Arrays.copyOf(levelIndex[lv], levelIndex[lv].length * 2);
+		}
+		levelIndex[lv][levelSize[lv]++] = i;
+		return i;
+	}
+
+	/**
+	 * Doubles the capacity of all columns, up to MAX_SIZE.
+	 */
+	private void grow() {
+		if (level.length == MAX_SIZE) throw new IllegalStateException("The store is full");
+		int capacity = (int) Math.min(level.length * 2L, MAX_SIZE);
+		givens = Arrays.copyOf(givens, capacity * GIVENS_WORDS);
+		solution = Arrays.copyOf(solution, capacity * SOLUTION_WORDS);
+		level = Arrays.copyOf(level, capacity);
+		difficulty = Arrays.copyOf(difficulty, capacity);
+	}
+
+	/**
+	 * Returns the number of puzzles in the store.
+	 * 
+	 * @return the number of puzzles
+	 */
+	public int size() { return size; }
+
+	/**
+	 * Returns the number of puzzles of the given level.
+	 * 
+	 * @param lv the level 1-6
+	 * @return the number of puzzles of the level
+	 */
+	public int size(int lv) { return levelSize[lv]; }
+
+	/**
+	 * Returns the index of the kth puzzle of the given level.
+	 * 
+	 * @param lv the level 1-6
+	 * @param k the rank of the puzzle within the level, in appending order
+	 * @return the index of the puzzle in the store
+	 */
+	public int indexOf(int lv, int k) {
+		if (k >= levelSize[lv]) throw new IndexOutOfBoundsException("Index: " + k);
+		return levelIndex[lv][k];
+	}
+
+	/**
+	 * Returns whether the given cell of the ith puzzle is a given.
+	 * 
+	 * @param i the puzzle index
+	 * @param p the cell number
+	 * @return true if the cell is a given, otherwise returns false
+	 */
+	public boolean isGiven(int i, int p) {
+		checkIndex(i);
+		long word = givens[i * GIVENS_WORDS + (p >> 6)];
+		return (word >>> (p & 63) & 1) != 0;
+	}
+
+	/**
+	 * Returns the solution value of the given cell of the ith puzzle.
+	 * 
+	 * @param i the puzzle index
+	 * @param p the cell number
+	 * @return the solution value
+	 */
+	public int getSltVal(int i, int p) {
+		checkIndex(i);
+		long word = solution[i * SOLUTION_WORDS + (p >> 4)];
+		return (int) (word >>> ((p & 15) << 2)) & 15;
+	}
+
+	/**
+	 * Returns the value of the given cell of the ith puzzle as shown to the player.
+	 * 
+	 * @param i the puzzle index
+	 * @param p the cell number
+	 * @return the solution value if the cell is a given, otherwise 0
+	 */
+	public int getVal(int i, int p) {
+		return isGiven(i, p) ? getSltVal(i, p) : 0;
+	}
+
+	public int getLevel(int i) {
+		checkIndex(i);
+		return level[i];
+	}
+
+	public int getDifficulty(int i) {
+		checkIndex(i);
+		return difficulty[i];
+	}
+
+	public int getNumEmptyCell(int i) {
+		checkIndex(i);
+		return 81 - Long.bitCount(givens[i * GIVENS_WORDS])
+			- Long.bitCount(givens[i * GIVENS_WORDS + 1]);
+	}
+
+	public int getNumClues(int i) {
+		return 81 - getNumEmptyCell(i);
+	}
+
+	/**
+	 * Returns the puzzle board of the ith puzzle.
+	 * 
+	 * @param i the puzzle index
+	 * @return the 9*9 board with 0 for empty cells
+	 */
+	public int[][] getPuzzleBoard(int i) {
+		int[][] board = new int[9][9];
+		for (int p = 0; p < 81; p++) {
+			board[p / 9][p % 9] = getVal(i, p);
+		}
+		return board;
+	}
+
+	/**
+	 * Returns the solution board of the ith puzzle.
+	 * 
+	 * @param i the puzzle index
+	 * @return the 9*9 solution board
+	 */
+	public int[][] getBoard(int i) {
+		int[][] board = new int[9][9];
+		for (int p = 0; p < 81; p++) {
+			board[p / 9][p % 9] = getSltVal(i, p);
+		}
+		return board;
+	}
+
+	/**
+	 * Converts the ith puzzle back to a SudokuPuzzle.
+	 * 
+	 * @param i the puzzle index
+	 * @return the sudoku puzzle
+	 */
+	public SudokuPuzzle toSudokuPuzzle(int i) {
+		return new SudokuPuzzle(getPuzzleBoard(i), getBoard(i));
+	}
+
+	/**
+	 * Restores the ith puzzle as a uniquely solvable SudokuPuzzle with its stored 
+	 * difficulty, without solving it again.
+	 * 
+	 * @param i the puzzle index
+	 * @return the sudoku puzzle
+	 */
+	public SudokuPuzzle restorePuzzle(int i) {
+		checkIndex(i);
+		long[] words = new long[PACKED_WORDS];
+		copyPacked(i, words, 0);
+		return restorePuzzle(words, 0, difficulty[i]);
+	}
+
+	/**
+	 * Copies the 2 givens words and the 6 solution words of the ith puzzle.
+	 * 
+	 * @param i the puzzle index
+	 * @param dst the array to copy to
+	 * @param off the position of the first word in dst
+	 */
+	void copyPacked(int i, long[] dst, int off) {
+		checkIndex(i);
+		System.arraycopy(givens, i * GIVENS_WORDS, dst, off, GIVENS_WORDS);
+		System.arraycopy(solution, i * SOLUTION_WORDS, dst, off + GIVENS_WORDS, SOLUTION_WORDS);
+	}
+
+	/**
+	 * Restores a uniquely solvable SudokuPuzzle from its packed words without solving it.
+	 * 
+	 * @param words the array holding the 2 givens words followed by the 6 solution words
+	 * @param off the position of the first word
+	 * @param diff the difficulty
+	 * @return the sudoku puzzle
+	 */
+	static SudokuPuzzle restorePuzzle(long[] words, int off, int diff) {
+		long[] slt = Arrays.copyOfRange(words, off + GIVENS_WORDS, off + PACKED_WORDS);
+		int[][] board = new int[9][9];
+		for (int p = 0; p < 81; p++) {
+			board[p / 9][p % 9] = (int) (slt[p >> 4] >>> ((p & 15) << 2)) & 15;
+		}
+		SudokuPuzzle.Snapshot snapshot = new SudokuPuzzle.Snapshot(words[off], words[off + 1], 
+			slt, SudokuPuzzle.Solvable.UNIQUE, diff);
+		return new SudokuPuzzle(board, snapshot);
+	}
+
+	/**
+	 * Appends the ith puzzle of the given store.
+	 * 
+	 * @param o the store to copy from
+	 * @param i the puzzle index in that store
+	 * @return the index of the appended puzzle
+	 */
+	public int append(PuzzleStore o, int i) {
+		o.checkIndex(i);
+		long[] slt = Arrays.copyOfRange(o.solution, i * SOLUTION_WORDS, (i + 1) * SOLUTION_WORDS);
+		return append(o.givens[i * GIVENS_WORDS], o.givens[i * GIVENS_WORDS + 1], slt,
+			o.level[i], o.difficulty[i]);
+	}
+
+	/**
+	 * Writes the puzzles in their packed form: the number of puzzles, then for each 
+	 * puzzle the 2 givens words, the 6 solution words, the level and the difficulty.
+	 * 
+	 * @param out the output to write to
+	 * @throws IOException
+	 */
+	public void writeTo(DataOutput out) throws IOException {
+		out.writeInt(size);
+		for (int i = 0; i < size; i++) {
+			for (int k = 0; k < GIVENS_WORDS; k++) {
+				out.writeLong(givens[i * GIVENS_WORDS + k]);
+			}
+			for (int k = 0; k < SOLUTION_WORDS; k++) {
+				out.writeLong(solution[i * SOLUTION_WORDS + k]);
+			}
+			out.writeByte(level[i]);
+			out.writeInt(difficulty[i]);
+		}
+	}
+
+	/**
+	 * Reads puzzles written by writeTo. The store grows as the puzzles are read rather
+	 * than by the count at the start, so a corrupt count fails at the end of the input
+	 * instead of allocating room for puzzles that are not there.
+	 * 
+	 * @param in the input to read from
+	 * @return the store of the puzzles read
+	 * @throws IOException if the input is malformed or cannot be read
+	 */
+	public static PuzzleStore readFrom(DataInput in) throws IOException {
+		int n = in.readInt();
+		if (n < 0 || n > MAX_SIZE) throw new IOException("Malformed puzzle count: " + n);
+		PuzzleStore store = new PuzzleStore(Math.min(n, 1024));
+		long[] slt = new long[SOLUTION_WORDS];
+		for (int i = 0; i < n; i++) {
+			long g0 = in.readLong(), g1 = in.readLong();
+			for (int k = 0; k < SOLUTION_WORDS; k++) {
+				slt[k] = in.readLong();
+			}
+			int lv = in.readByte();
+			int diff = in.readInt();
+			if (lv < 1 || lv > 6) throw new IOException("Malformed level: " + lv);
+			store.append(g0, g1, slt, lv, diff);
+		}
+		return store;
+	}
+
+	private static void checkLevel(int lv) {
+		if (lv < 1 || lv > 6) throw new IllegalArgumentException("Level must be 1-6: " + lv);
+	}
+
+	private void checkIndex(int i) {
+		if (i < 0 || i >= size) throw new IndexOutOfBoundsException("Index: " + i);
+	}
+
+}
@@ -0,0 +1,35 @@
+package sudokuGenerator;
+
+import java.util.Random;
+
+/**
+ * Randomly adds or removes a pair of cells symmetric about the center. This is the 
+ * original move of the generator and draws the same random numbers, so a seed gives 
+ * the same puzzles as before.
+ */
+public class RandomMutationOperator implements MutationOperator {
+
+	@Override
+	public void reset(SudokuPuzzle puzzle, int[][] board, int maxDifficulty) {}
+
+	@Override
+	public void mutate(SudokuPuzzle puzzle, int[][] board, Random rand) {
+		// generates a random cell
+		int n = rand.nextInt(81), r = n / 9, c = n % 9;
+		
+		// a uniquely solvable puzzle is rechecked against its known solution
+		if (rand.nextBoolean()) {
+			// removes a pair
+			puzzle.setVal(r, c, 0);
+			puzzle.setVal(8 - r, 8 - c, 0);
+			puzzle.updateAfterRemoval(n, 80 - n);
+		}
+		else {
+			// adds a pair with the original values
+			puzzle.setVal(r, c, board[r][c]);
+			puzzle.setVal(8 - r, 8 - c, board[8 - r][8 - c]);
+			puzzle.updateAfterAddition(n, 80 - n);
+		}
+	}
+
+}
@@ -0,0 +1,43 @@
+package sudokuGenerator;
+
+import java.util.Arrays;
+
+/**
+ * Computes candidate masks one puzzle and one cell at a time.
+ */
+public class ScalarCandidateEngine implements CandidateEngine {
+
+	@Override
+	public void computeCandidates(byte[] vals, short[] masks, boolean[] conflicts, int numPuzzles) {
+		compute(vals, masks, conflicts, 0, numPuzzles);
+	}
+
+	/**
+	 * Computes the candidate masks and conflicts of the puzzles from to to - 1.
+	 */
+	void compute(byte[] vals, short[] masks, boolean[] conflicts, int from, int to) {
+		int[] used = new int[27];
+		for (int i = from; i < to; i++) {
+			int base = i * 81;
+			boolean conflict = false;
+			Arrays.fill(used, 0);
+			for (int p = 0; p < 81; p++) {
+				int v = vals[base + p];
+				if (v == 0) continue;
+				int bit = 1 << v;
+				int[] sets = Grid.CELL_SETS[p];
+				if (((used[sets[0]] | used[sets[1]] | used[sets[2]]) & bit) != 0) conflict = true;
+				used[sets[0]] |= bit;
+				used[sets[1]] |= bit;
+				used[sets[2]] |= bit;
+			}
+			for (int p = 0; p < 81; p++) {
+				int[] sets = Grid.CELL_SETS[p];
+				masks[base + p] = vals[base + p] != 0 ? 0
+					: (short) (~(used[sets[0]] | used[sets[1]] | used[sets[2]]) & Grid.ALL);
+			}
+			conflicts[i] = conflict;
+		}
+	}
+
+}
@@ -8,18 +8,20 @@ import java.util.*;
  *   1. A row in the puzzle
  *   2. A column in the puzzle
  *   3. A 3 * 3 block in the puzzle
- *   
+ * 
+ * A Set of a puzzle is a view of one set of its Grid: the missing values are read from
+ * the set masks and the empty cells from the cell values. A Set generated from a range
+ * of indices holds its values itself, as of its last updateSet.
+ * 
  * @author Esther Lin
  */
 public class Set {
 
-	private int start_row;
-	private int start_col;
-	private int end_row;
-	private int end_col;
-	private boolean[] missingVal;		// the missing values in the set
-	private List<Cell> emptyCells;	// the empty positions in the set
-	
+	private final int s;				// the set number in the grid
+	private final SudokuPuzzle puzzle;	// the puzzle viewed, or null for a standalone set
+	private int missing;				// the missing values of a standalone set
+	private List<Cell> emptyCells;		// the empty cells of a standalone set
+
 	/**
 	 * Generates a set with the given indices.
 	 * 
@@ -29,45 +31,93 @@ public class Set {
 	 * @param ec the end column index
 	 */
 	public Set(int sr, int sc, int er, int ec) {
-		start_row = sr;
-		start_col = sc;
-		end_row = er;
-		end_col = ec;
-		missingVal = new boolean[10];
+		if (sr == er) s = sr;							// row
+		else if (sc == ec) s = 9 + sc;					// column
+		else s = 18 + sr / 3 * 3 + sc / 3;				// block
+		puzzle = null;
 		emptyCells = new ArrayList<Cell>();
 	}
-	
+
 	/**
 	 * Clones a set with the given set.
 	 * 
 	 * @param o the set to be cloned
 	 */
 	public Set(Set o) {
-		this(o.start_row, o.start_col, o.end_row, o.end_col);
+		s = o.s;
+		puzzle = o.puzzle;
+		if (puzzle == null) emptyCells = new ArrayList<Cell>();
+	}
+
+	/**
+	 * Generates a view of the given set of the puzzle.
+	 * 
+	 * @param puzzle the puzzle
+	 * @param s the set number
+	 */
+	Set(SudokuPuzzle puzzle, int s) {
+		this.s = s;
+		this.puzzle = puzzle;
 	}
-	
+
 	/**
-	 * Updates the missing values and the empty positions in the set.
+	 * Updates the missing values and the empty positions of a standalone set. A view of
+	 * a puzzle follows the puzzle and ignores the update.
 	 * 
 	 * @param puzzle the 2D array of positions representing the puzzle
 	 */
 	public void updateSet(Cell[][] puzzle) {
-		Arrays.fill(missingVal, true);
+		if (this.puzzle != null) return;
+		missing = Grid.ALL;
 		emptyCells.clear();
-		for (int i = start_row; i <= end_row; i++) {
-			for (int j = start_col; j <= end_col; j++) {
-				if (puzzle[i][j].isEmpty()) {
-					emptyCells.add(puzzle[i][j]);
-				}
-				else {
-					missingVal[puzzle[i][j].getVal()] = false;
-				}
-			}
+		for (int q : Grid.SET_CELLS[s]) {
+			Cell c = puzzle[q / 9][q % 9];
+			if (c.isEmpty()) emptyCells.add(c);
+			else missing &= ~(1 << c.getVal());
 		}
 	}
-	
-	public boolean[] getMissingVal() { return missingVal; }
-	
-	public List<Cell> getEmptyCells() { return emptyCells; }
-	
+
+	/**
+	 * Returns the mask of the missing values, as of the last update of the grid.
+	 * 
+	 * @return the mask, bit v set if v is missing
+	 */
+	public int getMissingMask() {
+		return puzzle != null ? ~puzzle.getGrid().used[s] & Grid.ALL : missing;
+	}
+
+	/**
+	 * Returns the array of missing values. Prefer getMissingMask, which does not
+	 * allocate.
+	 * 
+	 * @return the array of whether each of the digits 1-9 is missing
+	 */
+	public boolean[] getMissingVal() {
+		boolean[] missingVal = new boolean[10];
+		int mask = getMissingMask();
+		for (int k = 1; k <= 9; k++) {
+			missingVal[k] = (mask & 1 << k) != 0;
+		}
+		return missingVal;
+	}
+
+	/**
+	 * Returns the empty cells of the set.
+	 * 
+	 * @return the list of empty cells in the order of the set
+	 */
+	public List<Cell> getEmptyCells() {
+		if (puzzle == null) return emptyCells;
+		List<Cell> cells = new ArrayList<Cell>();
+		for (int q : Grid.SET_CELLS[s]) {
+			if (puzzle.getVal(q) == 0) cells.add(puzzle.getCell(q));
+		}
+		return cells;
+	}
+
+	/**
+	 * Returns the set number: rows 0-8, columns 9-17 and blocks 18-26.
+	 */
+	public int getSetNumber() { return s; }
+
 }
@@ -0,0 +1,378 @@
+package sudokuGenerator;
+
+import java.io.*;
+import java.net.*;
+import java.nio.charset.StandardCharsets;
+import java.sql.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Generates puzzles across several JVM processes on one machine or across hosts.
+ * 
+ * The boards 0 to numBoards - 1 are split into shards of consecutive boards. The
+ * coordinator listens on a socket, hands out shards to ShardWorkers as they become
+ * ready and collects the puzzles they stream back. Each message is checked as it
+ * arrives, and a shard is only committed when its worker sent one message per board
+ * and the END of that shard. A shard whose worker disconnects, sends a malformed
+ * message or ends the shard early is handed out again, at most
+ * MAX_SHARD_ATTEMPTS times in all; after that, the shard is given up and its boards are
+ * missing from the result. The coordinator also gives up when no worker has been
+ * connected for the idle timeout. When all shards are done, the puzzles are merged in
+ * board order, deduplicated and optionally inserted into the database.
+ * 
+ * Since the puzzle of a board only depends on the master seed and the board index
+ * (see ShardWorker.boardSeed), the merged result is the same for a given master seed
+ * regardless of the number of shards or workers.
+ * 
+ * Usage: ShardCoordinator <master seed> <boards> <level 0-6> [--workers=n]
+ *        [--shard-size=n] [--port=n] [--idle-timeout=seconds] [--out=file] [--db]
+ * 
+ *   --workers     the number of local worker processes to spawn (default: the number
+ *                 of processors). With 0, the coordinator waits for remote workers.
+ *   --port        the port to listen on (default: an ephemeral port on loopback).
+ *                 With a fixed port the coordinator accepts workers from other hosts.
+ *   --idle-timeout the seconds to wait while no worker is connected (default: 60).
+ *   --out         writes the merged puzzles to the file, one PUZZLE message per line.
+ *   --db          inserts the merged puzzles into the database.
+ */
+public class ShardCoordinator {
+
+	/**
+	 * A range of consecutive boards of a level.
+	 */
+	static class Shard {
+
+		final int id;
+		final int from;		// the first board index, inclusive
+		final int to;		// the last board index, exclusive
+		int attempts;		// the number of times the shard was handed out and not finished
+
+		Shard(int id, int from, int to) {
+			this.id = id;
+			this.from = from;
+			this.to = to;
+		}
+
+	}
+
+	// the number of times a shard is handed out before it is given up
+	static final int MAX_SHARD_ATTEMPTS = 3;
+
+	private final long masterSeed;
+	private final int numBoards;
+	private final int level;
+	private final BlockingQueue<Shard> pending;
+	private final CountDownLatch finished;
+	private final Map<Integer, String> results;		// the message of each board
+	private final List<Shard> failed;				// the shards given up
+	private final AtomicInteger connected;			// the number of connected workers
+	private volatile long idleSince;				// the time the last worker disconnected
+
+	/**
+	 * Generates a coordinator for the given boards.
+	 * 
+	 * @param masterSeed the master seed
+	 * @param numBoards the number of boards
+	 * @param level the level 1-6, or 0 for puzzles of maximal difficulty
+	 * @param shardSize the number of boards per shard
+	 */
+	public ShardCoordinator(long masterSeed, int numBoards, int level, int shardSize) {
+		this.masterSeed = masterSeed;
+		this.numBoards = numBoards;
+		this.level = level;
+		pending = new LinkedBlockingQueue<Shard>();
+		for (int from = 0, id = 0; from < numBoards; from += shardSize, id++) {
+			pending.add(new Shard(id, from, Math.min(from + shardSize, numBoards)));
+		}
+		finished = new CountDownLatch(pending.size());
+		results = new ConcurrentHashMap<Integer, String>();
+		failed = Collections.synchronizedList(new ArrayList<Shard>());
+		connected = new AtomicInteger();
+	}
+
+	/**
+	 * Serves workers on the given server socket until all shards are finished or given 
+	 * up, or no worker has been connected for the given time.
+	 * 
+	 * @param server the server socket
+	 * @param idleMillis the milliseconds to wait while no worker is connected
+	 * @return true if all shards are finished or given up, false if the coordinator 
+	 *         gave up waiting for workers
+	 * @throws InterruptedException
+	 */
+	public boolean serve(ServerSocket server, long idleMillis) throws InterruptedException {
+		idleSince = System.nanoTime();
+		Thread acceptor = new Thread(() -> {
+			while (!server.isClosed()) {
+				try {
+					Socket socket = server.accept();
+					connected.incrementAndGet();
+					Thread handler = new Thread(() -> {
+						try {
+							handle(socket);
+						} finally {
+							if (connected.decrementAndGet() == 0) idleSince = System.nanoTime();
+						}
+					});
+					handler.setDaemon(true);
+					handler.start();
+				} catch (IOException e) {
+					if (!server.isClosed()) e.printStackTrace();
+				}
+			}
+		});
+		acceptor.setDaemon(true);
+		acceptor.start();
+
+		boolean done;
+		while (!(done = finished.await(1, TimeUnit.SECONDS))) {
+			if (connected.get() == 0 && System.nanoTime() - idleSince > idleMillis * 1_000_000L) {
+				System.out.println("No worker connected for " + idleMillis / 1000 + " s, giving up.");
+				break;
+			}
+		}
+		try {
+			server.close();
+		} catch (IOException e) { e.printStackTrace(); }
+		return done;
+	}
+
+	/**
+	 * Hands out shards to the worker on the given socket and collects its puzzles.
+	 * 
+	 * @param socket the socket of the worker
+	 */
+	private void handle(Socket socket) {
+		Shard shard = null;
+		try (
+			Socket s = socket;
+			BufferedReader in = new BufferedReader(
+				new InputStreamReader(s.getInputStream(), StandardCharsets.US_ASCII));
+			PrintWriter out = new PrintWriter(
+				new OutputStreamWriter(s.getOutputStream(), StandardCharsets.US_ASCII));
+		) {
+			while (in.readLine() != null) {	// READY
+				// waits for a shard, or for the others to finish
+				shard = null;
+				while (shard == null && finished.getCount() > 0) {
+					shard = pending.poll(1, TimeUnit.SECONDS);
+				}
+				if (shard == null) {
+					out.println("DONE");
+					out.flush();
+					return;
+				}
+				out.println("SHARD " + shard.id + " " + masterSeed + " " +
+					shard.from + " " + shard.to + " " + level);
+				out.flush();
+
+				// collects the shard and commits it only when it is complete
+				Map<Integer, String> received = new HashMap<Integer, String>();
+				String line;
+				while ((line = in.readLine()) != null && !line.startsWith("END")) {
+					received.put(checkBoard(line, shard), line);
+				}
+				if (line == null) break;
+				if (!line.equals("END " + shard.id)) {
+					throw new IllegalArgumentException("Expected the END of shard #" + shard.id + ": " + line);
+				}
+				if (received.size() != shard.to - shard.from) {
+					throw new IllegalArgumentException("Shard #" + shard.id + " ended after " + 
+						received.size() + " of " + (shard.to - shard.from) + " boards");
+				}
+				results.putAll(received);
+				System.out.println("Shard #" + shard.id + " finished.");
+				shard = null;
+				finished.countDown();
+			}
+		} catch (IOException | InterruptedException e) {
+			System.out.println("Worker disconnected: " + e.getMessage());
+		} catch (RuntimeException e) {
+			System.out.println("Malformed worker message: " + e);
+		} finally {
+			if (shard != null) requeue(shard);
+		}
+	}
+
+	/**
+	 * Checks a PUZZLE or SKIP message of the given shard, so that merge can parse it.
+	 * 
+	 * @param line the message
+	 * @param shard the shard handed out to the worker
+	 * @return the board index of the message
+	 * @throws IllegalArgumentException if the message is malformed
+	 */
+	private int checkBoard(String line, Shard shard) {
+		String[] msg = line.split(" ");
+		boolean puzzle = msg[0].equals("PUZZLE");
+		if (!(puzzle ? msg.length == 6 : msg[0].equals("SKIP") && msg.length == 2)) {
+			throw new IllegalArgumentException("Unknown message: " + line);
+		}
+		int b = Integer.parseInt(msg[1]);
+		if (b < shard.from || b >= shard.to) {
+			throw new IllegalArgumentException("Board " + b + " is not in shard #" + shard.id);
+		}
+		if (puzzle) {
+			int lv = Integer.parseInt(msg[2]);
+			if (lv < 1 || lv > 6 || (level != 0 && lv != level)) {
+				throw new IllegalArgumentException("Invalid level " + lv + " of board " + b);
+			}
+			if (Integer.parseInt(msg[3]) < 0) {
+				throw new IllegalArgumentException("Invalid difficulty of board " + b + ": " + msg[3]);
+			}
+			SudokuPuzzle.parseGrid(msg[4]);
+			if (msg[5].indexOf('0') >= 0 || msg[5].indexOf('.') >= 0) {
+				throw new IllegalArgumentException("Incomplete solution of board " + b);
+			}
+			SudokuPuzzle.parseGrid(msg[5]);
+		}
+		return b;
+	}
+
+	/**
+	 * Hands out the given unfinished shard again, or gives it up after 
+	 * MAX_SHARD_ATTEMPTS attempts.
+	 * 
+	 * @param shard the unfinished shard
+	 */
+	private void requeue(Shard shard) {
+		if (++shard.attempts < MAX_SHARD_ATTEMPTS) {
+			pending.add(shard);
+			return;
+		}
+		System.out.println("Shard #" + shard.id + " given up after " + shard.attempts + " attempts.");
+		failed.add(shard);
+		finished.countDown();
+	}
+
+	/**
+	 * Returns the shards given up after MAX_SHARD_ATTEMPTS attempts.
+	 * 
+	 * @return the ids of the shards given up
+	 */
+	public List<Integer> getFailedShards() {
+		List<Integer> ids = new ArrayList<Integer>();
+		synchronized (failed) {
+			for (Shard shard : failed) ids.add(shard.id);
+		}
+		return ids;
+	}
+
+	/**
+	 * Merges the collected puzzles in board order and removes duplicate puzzles.
+	 * 
+	 * @param store the puzzle store to append the merged puzzles to
+	 * @return the merged messages in board order
+	 */
+	public List<String> merge(PuzzleStore store) {
+		List<String> merged = new ArrayList<String>();
+		java.util.Set<String> seen = new HashSet<String>();
+		for (int b = 0; b < numBoards; b++) {
+			String line = results.get(b);
+			if (line == null || !line.startsWith("PUZZLE")) continue;
+
+			// PUZZLE <board> <level> <difficulty> <puzzle grid> <solution grid>
+			String[] msg = line.split(" ");
+			if (!seen.add(msg[4])) continue;
+			store.append(
+				SudokuPuzzle.parseGrid(msg[4]),
+				SudokuPuzzle.parseGrid(msg[5]),
+				Integer.parseInt(msg[2]),
+				Integer.parseInt(msg[3])
+			);
+			merged.add(line);
+		}
+		return merged;
+	}
+
+	/**
+	 * Spawns a local worker process connecting to the given port.
+	 * 
+	 * @param port the port of the coordinator
+	 * @return the worker process
+	 * @throws IOException
+	 */
+	static Process spawnWorker(int port) throws IOException {
+		String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+		return new ProcessBuilder(
+			java, "-cp", System.getProperty("java.class.path"),
+			ShardWorker.class.getName(), "127.0.0.1", String.valueOf(port)
+		).inheritIO().start();
+	}
+
+	public static void main(String[] args) throws Exception {
+		if (args.length < 3) {
+			System.err.println("Usage: ShardCoordinator <master seed> <boards> <level 0-6> " +
+				"[--workers=n] [--shard-size=n] [--port=n] [--idle-timeout=seconds] [--out=file] [--db]");
+			System.exit(2);
+		}
+		long masterSeed = Long.parseLong(args[0]);
+		int numBoards = Integer.parseInt(args[1]);
+		int level = Integer.parseInt(args[2]);
+		int workers = Runtime.getRuntime().availableProcessors();
+		int shardSize = 10;
+		int port = -1;
+		long idleSeconds = 60;
+		String outFile = null;
+		boolean db = false;
+		for (int i = 3; i < args.length; i++) {
+			String arg = args[i];
+			if (arg.startsWith("--workers=")) workers = Integer.parseInt(arg.substring(10));
+			else if (arg.startsWith("--shard-size=")) shardSize = Integer.parseInt(arg.substring(13));
+			else if (arg.startsWith("--port=")) port = Integer.parseInt(arg.substring(7));
+			else if (arg.startsWith("--idle-timeout=")) idleSeconds = Long.parseLong(arg.substring(15));
+			else if (arg.startsWith("--out=")) outFile = arg.substring(6);
+			else if (arg.equals("--db")) db = true;
+			else throw new IllegalArgumentException("Unknown option: " + arg);
+		}
+
+		ShardCoordinator coordinator = new ShardCoordinator(masterSeed, numBoards, level, shardSize);
+		ServerSocket server = port < 0
+			? new ServerSocket(0, 50, InetAddress.getLoopbackAddress())
+			: new ServerSocket(port);
+		System.out.println("Coordinator listening on port " + server.getLocalPort() + ".");
+
+		List<Process> processes = new ArrayList<Process>();
+		for (int i = 0; i < workers; i++) {
+			processes.add(spawnWorker(server.getLocalPort()));
+		}
+		boolean done = coordinator.serve(server, idleSeconds * 1000);
+		for (Process p : processes) {
+			if (!done) p.destroy();
+			p.waitFor();
+		}
+		if (!done) {
+			System.out.println("Unfinished shards are missing from the result.");
+		}
+		if (!coordinator.getFailedShards().isEmpty()) {
+			System.out.println("Shards given up: " + coordinator.getFailedShards());
+		}
+
+		PuzzleStore store = new PuzzleStore(numBoards);
+		List<String> merged = coordinator.merge(store);
+		System.out.println(merged.size() + " puzzles merged from " + numBoards + " boards.");
+		for (int l = 1; l <= 6; l++) {
+			System.out.println("Level " + l + " puzzles: " + store.size(l));
+		}
+
+		if (outFile != null) {
+			try (PrintWriter out = new PrintWriter(new FileWriter(outFile))) {
+				for (String line : merged) {
+					out.println(line);
+				}
+			}
+		}
+
+		if (db) {
+			try (Connection conn = DriverManager.getConnection(
+				PostgreSqlConnection.DB_URL, PostgreSqlConnection.DB_USER, PostgreSqlConnection.DB_PASSWORD)) {
+				System.out.println("Connected to PostgreSQL database.");
+				PostgreSqlConnection.createTables(conn);
+				PostgreSqlConnection.insertPuzzles(conn, store);
+			} catch (SQLException e) { e.printStackTrace(); }
+		}
+	}
+
+}
@@ -0,0 +1,94 @@
+package sudokuGenerator;
+
+import java.io.*;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Generates the shards handed out by a ShardCoordinator and streams the puzzles back
+ * over a socket.
+ * 
+ * Every board of a shard is generated by its own PuzzleGenerator seeded from the
+ * master seed and the board index, so the puzzle of a board is the same no matter
+ * which worker or shard generates it.
+ * 
+ * Protocol (one message per line):
+ * 
+ *   worker:      READY
+ *   coordinator: SHARD <id> <master seed> <from board> <to board> <level> | DONE
+ *   worker:      PUZZLE <board> <level> <difficulty> <puzzle grid> <solution grid>
+ *                | SKIP <board> (for each board of the shard)
+ *   worker:      END <id>
+ * 
+ * Usage: ShardWorker <host> <port>
+ */
+public class ShardWorker {
+
+	/**
+	 * Returns the seed of the given board, mixed from the master seed with SplitMix64.
+	 * 
+	 * @param masterSeed the master seed
+	 * @param b the board index
+	 * @return the seed of the board
+	 */
+	static long boardSeed(long masterSeed, int b) {
+		long z = masterSeed + (b + 1) * 0x9E3779B97F4A7C15L;
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+
+	/**
+	 * Generates the puzzle of the given board and returns its message.
+	 * 
+	 * @param masterSeed the master seed
+	 * @param b the board index
+	 * @param level the level 1-6, or 0 for a puzzle of maximal difficulty
+	 * @return the PUZZLE message, or the SKIP message if no puzzle is generated
+	 */
+	static String generate(long masterSeed, int b, int level) {
+		PuzzleGenerator pg = new PuzzleGenerator(boardSeed(masterSeed, b));
+		int[][] board = pg.generateBoard();
+		SudokuPuzzle sp = level == 0
+			? pg.generatePuzzle(board)
+			: pg.generatePuzzleByLevel(board, level);
+		if (sp == null || !sp.uniquelySolvable()) return "SKIP " + b;
+		return "PUZZLE " + b + " " + sp.getLevel() + " " + sp.getDifficulty() + " " +
+			SudokuPuzzle.formatGrid(sp.getPuzzleBoard()) + " " + SudokuPuzzle.formatGrid(board);
+	}
+
+	public static void main(String[] args) {
+		if (args.length != 2) {
+			System.err.println("Usage: ShardWorker <host> <port>");
+			System.exit(2);
+		}
+
+		try (
+			Socket socket = new Socket(args[0], Integer.parseInt(args[1]));
+			BufferedReader in = new BufferedReader(
+				new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+			PrintWriter out = new PrintWriter(
+				new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.US_ASCII));
+		) {
+			while (true) {
+				out.println("READY");
+				out.flush();
+				String line = in.readLine();
+				if (line == null || line.equals("DONE")) break;
+
+				// SHARD <id> <master seed> <from board> <to board> <level>
+				String[] shard = line.split(" ");
+				long masterSeed = Long.parseLong(shard[2]);
+				int from = Integer.parseInt(shard[3]);
+				int to = Integer.parseInt(shard[4]);
+				int level = Integer.parseInt(shard[5]);
+				for (int b = from; b < to; b++) {
+					out.println(generate(masterSeed, b, level));
+					out.flush();
+				}
+				out.println("END " + shard[1]);
+			}
+		} catch (IOException e) { e.printStackTrace(); }
+	}
+
+}
@@ -1,6 +1,8 @@
 package sudokuGenerator;
 
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Represents a sudoku puzzle.
@@ -21,6 +23,15 @@ import java.util.*;
  *   A puzzle can be not solvable, uniquely solvable, or not uniquely solvable. Only
  *   a uniquely solvable puzzle is a valid sudoku puzzle.
  * 
+ * Threads:
+ * 
+ *   A SudokuPuzzle is not thread-safe. After updateAfterRemoval or updateAfterAddition, 
+ *   the difficulty and the solution are computed by the first getter that needs them, 
+ *   so a puzzle being changed must stay on one thread. The puzzles returned by 
+ *   PuzzleGenerator and PuzzleStore are fully updated and their getters only read, so 
+ *   they can be shared by several threads once safely published, e.g. by a concurrent 
+ *   queue or PuzzlePublisher.
+ * 
  * @author Esther Lin
  */
 public class SudokuPuzzle {
@@ -30,12 +41,85 @@ public class SudokuPuzzle {
 		UNIQUE,		// Uniquely solvable
 		NOT_UNIQUE	// Solvable, but not uniquely
 	};
+	
+	/**
+	 * An immutable snapshot of the state of a sudoku puzzle, to be restored on a puzzle 
+	 * with the same solution values. Holds the givens as a bitmask, the first solution 
+	 * found in 4 bits per cell, and the cached solvability and difficulty, so taking and 
+	 * restoring a snapshot costs a few word copies instead of cloning the puzzle.
+	 */
+	public static final class Snapshot {
+		
+		private final long givens0;		// the givens of cells 0-63
+		private final long givens1;		// the givens of cells 64-80
+		private final long[] solution;
+		private final Solvable solvability;
+		private final int difficulty;
+		private final int numEmptyCell;
+		
+		private Snapshot(SudokuPuzzle o) {
+			long g0 = 0, g1 = 0;
+			for (int p = 0; p < 81; p++) {
+				if (o.grid.vals[p] != 0) {
+					if (p < 64) g0 |= 1L << p;
+					else g1 |= 1L << (p - 64);
+				}
+			}
+			givens0 = g0;
+			givens1 = g1;
+			solution = o.solution.clone();
+			solvability = o.solvability;
+			difficulty = o.difficulty;
+			numEmptyCell = o.numEmptyCell;
+		}
+		
+		/**
+		 * Generates a snapshot from its packed form, as kept by PuzzleStore.
+		 * 
+		 * @param givens0 the givens of cells 0-63
+		 * @param givens1 the givens of cells 64-80
+		 * @param solution the 6 packed solution words
+		 * @param solvability the solvability
+		 * @param difficulty the difficulty
+		 */
+		Snapshot(long givens0, long givens1, long[] solution, Solvable solvability, int difficulty) {
+			this.givens0 = givens0;
+			this.givens1 = givens1;
+			this.solution = solution.clone();
+			this.solvability = solvability;
+			this.difficulty = difficulty;
+			numEmptyCell = 81 - Long.bitCount(givens0) - Long.bitCount(givens1);
+		}
+		
+		/**
+		 * Returns whether the given cell is a given in the snapshot.
+		 * 
+		 * @param p the cell number
+		 * @return true if the cell is a given, otherwise returns false
+		 */
+		public boolean isGiven(int p) {
+			return ((p < 64 ? givens0 >>> p : givens1 >>> (p - 64)) & 1) != 0;
+		}
+		
+		public Solvable getSolvability() { return solvability; }
+		
+		public int getDifficulty() { return difficulty; }
+		
+		public int getNumEmptyCell() { return numEmptyCell; }
+		
+	}
 
-	private Cell[][] puzzle;		// the 2D array of Cells
-	private Set[] sets;				// the row, column and block Sets
+	private Grid grid;				// the values and candidates of the cells
+	private Cell[] cells;			// the Cell views of the grid, created on demand
 	private Solvable solvability;
 	private int difficulty;
 	private int numEmptyCell;		// the number of empty cells
+	private long[] solution;		// the first solution found, 4 bits per cell
+	private boolean stale;			// whether difficulty and solution need updating
+	private Solvable stopAt;		// the solvability at which solving stops
+	private int numSolves;			// the number of searches run, for benchmarks
+	private Search search;			// the parallel search this puzzle solves a leaf of
+	private int leaf;				// the index of the leaf in the search
 	
 	/**
 	 * Generates a sudoku puzzle with the given puzzle board.
@@ -44,29 +128,7 @@ public class SudokuPuzzle {
 	 */
 	public SudokuPuzzle(int[][] puzzleBoard, int[][] board) {
 		this();
-		// generates Cells
-		for (int i = 0; i < 9; i++) {
-			for (int j = 0; j < 9; j++) {
-				puzzle[i][j] = new Cell(i, j, board[i][j], puzzleBoard[i][j]);
-				if (puzzleBoard[i][j] > 0) numEmptyCell--;
-			}
-		}
-		// updates flags for Cells
-		for (int i = 0; i < 9; i++) {
-			for (int j = 0; j < 9; j++) {
-				puzzle[i][j].updateFlag(puzzle);
-			}
-		}
-		// initializes Sets
-		for (int k = 0; k < 9; k++) {
-			sets[k] = new Set(k, 0, k, 8);						// row Sets
-			sets[k + 9] = new Set(0, k, 8, k);					// column Sets
-			int sr = k / 3 * 3;
-			int sc = k % 3 * 3;
-			sets[k + 9 * 2] = new Set(sr, sc, sr + 2, sc + 2);	// block Sets
-		}
-		
-		updatePuzzle();
+		load(puzzleBoard, board);
 		//System.out.println(difficulty);
 	}
 	
@@ -76,31 +138,51 @@ public class SudokuPuzzle {
 	 * @param o the sudoku puzzle to be cloned
 	 */
 	public SudokuPuzzle(SudokuPuzzle o) {
-		this();
-		// copies Cells
-		for (int i = 0; i < 9; i++) {
-			for (int j = 0; j < 9; j++) {
-				puzzle[i][j] = new Cell(o.puzzle[i][j]);
-			}
-		}
-		// copies Sets
-		for (int k = 0; k < 27; k++) {
-			sets[k] = new Set(o.sets[k]);
-		}
+		grid = new Grid(o.grid);
 		solvability = o.solvability;
 		difficulty = o.difficulty;
 		numEmptyCell = o.numEmptyCell;
+		solution = o.solution.clone();
+		stale = o.stale;
+		stopAt = Solvable.NOT_UNIQUE;
+	}
+	
+	/**
+	 * Generates a sudoku puzzle with the given board and restores the given snapshot
+	 * on it, without solving the puzzle again.
+	 * 
+	 * @param board the 2D array that holds solution values
+	 * @param snapshot the snapshot of a puzzle with the same solution values
+	 */
+	public SudokuPuzzle(int[][] board, Snapshot snapshot) {
+		this();
+		grid.load(board, board);
+		restore(snapshot);
 	}
 	
 	/**
 	 * Initializes member variables.
 	 */
 	public SudokuPuzzle() {
-		puzzle = new Cell[9][9];
-		sets = new Set[27];
+		grid = new Grid();
 		solvability = Solvable.NOT;
 		difficulty = 0;
 		numEmptyCell = 81;
+		solution = new long[6];
+		stopAt = Solvable.NOT_UNIQUE;
+	}
+	
+	/**
+	 * Loads the given puzzle board into the sudoku puzzle and updates its solvability 
+	 * and difficulty. The grid is reused, so one sudoku puzzle can solve many boards 
+	 * without reallocating.
+	 * 
+	 * @param puzzleBoard the 2D array that holds values
+	 * @param board the 2D array that holds solution values
+	 */
+	public void load(int[][] puzzleBoard, int[][] board) {
+		numEmptyCell = grid.load(puzzleBoard, board);
+		updatePuzzle();
 	}
 	
 	/**
@@ -109,52 +191,119 @@ public class SudokuPuzzle {
 	public void updatePuzzle() {
 		solvability = Solvable.NOT;	// default to not solvable
 		difficulty = numEmptyCell;	// default to the number of empty cells
-		
-		// initializes the priority queue of empty cells
-		Queue<Cell> emptyCell = new PriorityQueue<Cell>();
-		updateEmptyCell(emptyCell);
-		
-		// initializes the priority queue of missing values in sets
-		Queue<MissingVal> missingVal = new PriorityQueue<MissingVal>();
-		updateMissingVal(missingVal);
-		
-		solve(emptyCell, missingVal);
+		stale = false;
+		numSolves++;
+		solve();
 	}
 	
 	/**
-	 * Updates the queue of empty cells prioritized with the number of candidate values.
+	 * Updates the solvability and difficulty of the sudoku puzzle like updatePuzzle(), 
+	 * solving the top branches in parallel on the given pool. The results are the same 
+	 * as those of updatePuzzle(), including the difficulty and the first solution.
 	 * 
-	 * @param emptyCell the priority queue of empty cells
+	 * @param pool the pool to solve on
 	 */
-	private void updateEmptyCell(Queue<Cell> emptyCell) {
-		emptyCell.clear();
-		for (int i = 0; i < 9; i++) {
-			for (int j = 0; j < 9; j++) {
-				if (puzzle[i][j].isEmpty()) {
-					puzzle[i][j].updateFlag(puzzle);
-					emptyCell.offer(puzzle[i][j]);
-				}
+	public void updatePuzzle(ForkJoinPool pool) {
+		solvability = Solvable.NOT;
+		difficulty = numEmptyCell;
+		stale = false;
+		numSolves++;
+		new Search(this).run(pool);
+	}
+	
+	/**
+	 * Updates the solvability after emptying the given cells of a puzzle that was 
+	 * uniquely solvable before.
+	 * 
+	 * The known solution is used as an oracle: the puzzle stays uniquely solvable if and 
+	 * only if no solution has one of the emptied cells set to something other than its 
+	 * known value. For each emptied cell in turn, the search fixes the cells before it 
+	 * to their known values and tries the other candidates of the cell, stopping at the 
+	 * first solution found. This is much cheaper than updatePuzzle, which has to exhaust 
+	 * the whole search tree to prove uniqueness.
+	 * 
+	 * The difficulty is updated lazily, the first time it is asked for.
+	 * 
+	 * @param cells the cell numbers of the emptied cells
+	 */
+	public void updateAfterRemoval(int... cells) {
+		if (solvability != Solvable.UNIQUE) {
+			updatePuzzle();
+			return;
+		}
+		byte[] vals = grid.vals;
+		stale = true;
+		for (int p : cells) {
+			if (vals[p] != 0) continue;	// listed twice
+			int known = solutionVal(p);
+			grid.updateUsed();
+			int flag = grid.candidatesOf(p) & ~(1 << known);
+			for (int k = 1; k <= 9 && solvability == Solvable.UNIQUE; k++) {
+				if ((flag & 1 << k) == 0) continue;
+				vals[p] = (byte) k;
+				numSolves++;
+				if (grid.countSolutions(1) > 0) solvability = Solvable.NOT_UNIQUE;
 			}
+			vals[p] = (byte) known;		// fixes the cell for the next ones
+			if (solvability != Solvable.UNIQUE) break;
+		}
+		for (int p : cells) {
+			vals[p] = 0;
 		}
 	}
 	
 	/**
-	 * Updates the queue of missing values in sets prioritized with the number of candidate 
-	 * cells.
+	 * Updates the solvability after filling the given cells of a puzzle that was 
+	 * uniquely solvable before. The puzzle stays uniquely solvable if every filled value 
+	 * agrees with the known solution, and is not solvable otherwise.
 	 * 
-	 * @param missingVal the priority queue of missing values in sets
+	 * The difficulty is updated lazily, the first time it is asked for.
+	 * 
+	 * @param cells the cell numbers of the filled cells
 	 */
-	private void updateMissingVal(Queue<MissingVal> missingVal) {
-		missingVal.clear();
-		for (Set set : sets) {
-			set.updateSet(puzzle);
-			boolean[] missingValInSet = set.getMissingVal();
-			for (int k = 1; k <= 9; k++) {
-				if (missingValInSet[k]) {
-					missingVal.offer(new MissingVal(set, k));
-				}
+	public void updateAfterAddition(int... cells) {
+		if (solvability != Solvable.UNIQUE) {
+			updatePuzzle();
+			return;
+		}
+		for (int p : cells) {
+			if (grid.vals[p] != solutionVal(p)) {
+				solvability = Solvable.NOT;
+				difficulty = numEmptyCell;
+				stale = false;
+				return;
 			}
 		}
+		stale = true;
+	}
+	
+	/**
+	 * Updates the difficulty and the first solution if they are stale, by solving the 
+	 * puzzle up to the first solution only. The difficulty does not change after the 
+	 * first solution is found, so it equals the one updatePuzzle would compute. Called 
+	 * by the getters, and by PuzzleGenerator before a puzzle is returned.
+	 */
+	void ensureUpdated() {
+		if (!stale) return;
+		Solvable known = solvability;
+		solvability = Solvable.NOT;
+		difficulty = numEmptyCell;
+		stopAt = Solvable.UNIQUE;
+		numSolves++;
+		solve();
+		stopAt = Solvable.NOT_UNIQUE;
+		solvability = known;
+		stale = false;
+	}
+	
+	/**
+	 * Returns the value of the given cell in the first solution found.
+	 * 
+	 * @param p the cell number
+	 * @return the solution value
+	 */
+	private int solutionVal(int p) {
+		return (int) (solution[p >> 4] >>> ((p & 15) << 2)) & 15;
 	}
 	
 	/**
@@ -168,82 +317,281 @@ public class SudokuPuzzle {
 	 *   5. If 3 < 2, tries filling each candidate cells with the missing value and 
 	 *      recursively solves it. If all candidate cells are exhausted, it is not solvable.
 	 * 
+	 * Ties in 2 go to the first cell row by row, and ties in 3 go to the first set (rows, 
+	 * then columns, then blocks) and the smallest value.
+	 * 
 	 * Tries finding more than one solutions and updates the solvability. Updates the 
 	 * difficulty when finding the first solution. If two solutions are found, stops solving 
-	 * immediately and resets the difficulty to 0.
+	 * immediately.
 	 * 
-	 * @param emptyCell the priority queue of empty cells
-	 * @param missingVal the priority queue of missing values in sets
 	 * @return true if solution(s) is found, otherwise returns false
 	 */
-	private boolean solve(Queue<Cell> emptyCell, Queue<MissingVal> missingVal) {
-		if (emptyCell.isEmpty()) {		// solution found
+	private boolean solve() {
+		if (search != null && search.isCancelled(leaf)) return false;
+		
+		long branch = choose();
+		if (branch < 0) {	// solution found
+			if (solvability == Solvable.NOT) {
+				// records the first solution
+				byte[] vals = grid.vals;
+				Arrays.fill(solution, 0);
+				for (int p = 0; p < 81; p++) {
+					solution[p >> 4] |= (long) vals[p] << ((p & 15) << 2);
+				}
+			}
 			solvability = solvability == Solvable.UNIQUE
 				? Solvable.NOT_UNIQUE	// second solution
 				: Solvable.UNIQUE;		// first solution
+			if (search != null) search.found(leaf);
 			return true;
 		}
-
-		if (emptyCell.peek().getNumCandidates() <= missingVal.peek().getNumCandidates()) {
-			// solves the empty cell with the smallest number of candidate values
-			Cell p = emptyCell.poll();
-			boolean[] flag = p.getFlag();
+		
+		byte[] vals = grid.vals;
+		int index = (int) branch & 0xFF;
+		int setVal = (int) (branch >>> 8) & 0xF;
+		int mask = (int) (branch >>> 16) & 0xFFFF;
+		int num = (int) (branch >>> 32);
+		
+		// calculates the difficulty factor
+		int diffFactor = (num - 1) * (num - 1) * 100;
+		if (solvability == Solvable.NOT) {
+			difficulty += diffFactor;
+		}
+		
+		// solves each candidate value of the cell, or each candidate cell of the value
+		for (int k = 0; k <= 9; k++) {
+			if ((mask & 1 << k) == 0) continue;
+			int q = setVal == 0 ? index : Grid.SET_CELLS[index][k];
+			vals[q] = (byte) (setVal == 0 ? k : setVal);
+			boolean solved = solve();	// solves next step
+			vals[q] = 0;				// reverts filled value
+			if (solved && solvability == stopAt) {
+				return true;
+			}
+		}
+		// not solvable, reverts added difficulty factor
+		if (solvability == Solvable.NOT) {
+			difficulty -= diffFactor;
+		}
+		return false;	// not solvable
+	}
+	
+	/**
+	 * Chooses the next step of solve: the empty cell with the smallest number of 
+	 * candidate values, or the missing value in a set with the smallest number of 
+	 * candidate cells if it has fewer. The grid is left as it was.
+	 * 
+	 * @return -1 if no empty cell is left, otherwise num << 32 | mask << 16 | 
+	 *         setVal << 8 | index, where num is the number of branches and either 
+	 *         setVal is 0, index is the cell and mask has the candidate values, or 
+	 *         index is the set and mask has the positions of the candidate cells
+	 */
+	private long choose() {
+		byte[] vals = grid.vals;
+		short[] candidates = grid.candidates;
+		int[] used = grid.used;
+		grid.updateUsed();
+		
+		// finds the empty cell with the smallest number of candidate values
+		int cell = -1, cellNum = 10;
+		for (int p = 0; p < 81; p++) {
+			if (vals[p] != 0) continue;
+			int mask = grid.candidatesOf(p);
+			candidates[p] = (short) mask;
+			int n = Integer.bitCount(mask);
+			if (n < cellNum) {
+				cell = p;
+				cellNum = n;
+			}
+		}
+		if (cell < 0) return -1;
+		
+		// finds the missing value in a set with the smallest number of candidate cells
+		int set = -1, setVal = 0, setNum = 10;
+		for (int u = 0; u < 27 && setNum > 0; u++) {
+			int missing = ~used[u] & Grid.ALL;
+			int[] setCells = Grid.SET_CELLS[u];
+			for (int v = 1; v <= 9; v++) {
+				if ((missing & 1 << v) == 0) continue;
+				int n = 0;
+				for (int q : setCells) {
+					if (vals[q] == 0 && (candidates[q] & 1 << v) != 0) n++;
+				}
+				if (n < setNum) {
+					set = u;
+					setVal = v;
+					setNum = n;
+				}
+			}
+		}
+		
+		if (cellNum <= setNum) {
+			return (long) cellNum << 32 | (long) candidates[cell] << 16 | cell;
+		}
+		int[] setCells = Grid.SET_CELLS[set];
+		int possibleCells = 0;	// the positions in the set of the candidate cells
+		for (int m = 0; m < 9; m++) {
+			int q = setCells[m];
+			if (vals[q] == 0 && (candidates[q] & 1 << setVal) != 0) possibleCells |= 1 << m;
+		}
+		return (long) setNum << 32 | (long) possibleCells << 16 | setVal << 8 | set;
+	}
+	
+	/**
+	 * A parallel run of solve on one puzzle.
+	 * 
+	 * The top of the search tree is expanded in the order solve visits it, until there 
+	 * are enough leaves for the pool. Each leaf is solved by a copy of the puzzle whose 
+	 * difficulty starts with the difficulty factors of the path to the leaf, so the 
+	 * first solution of the first leaf with a solution is the first solution solve 
+	 * finds, with the same difficulty.
+	 * 
+	 * The leaves are first searched for up to two solutions in total, and all of them 
+	 * stop as soon as the second one is found. If that left the leaves before the first 
+	 * solution unfinished, those are searched again for one solution each, and a leaf 
+	 * stops as soon as an earlier leaf has one.
+	 */
+	private static class Search {
+		
+		static final int LEAVES_PER_THREAD = 8;
+		
+		private final SudokuPuzzle root;
+		private final List<byte[]> leafVals;			// the cells of each leaf
+		private final List<Integer> leafFactors;		// the difficulty factors of each path
+		private SudokuPuzzle[] workers;					// the solved copy of each leaf
+		private final AtomicInteger numFound;			// the number of solutions found
+		private final AtomicInteger firstFound;			// the first leaf with a solution
+		private volatile boolean leftmost;				// whether only one solution is searched
+		
+		Search(SudokuPuzzle root) {
+			this.root = root;
+			leafVals = new ArrayList<byte[]>();
+			leafFactors = new ArrayList<Integer>();
+			numFound = new AtomicInteger();
+			firstFound = new AtomicInteger(Integer.MAX_VALUE);
+		}
+		
+		boolean isCancelled(int leaf) {
+			return leftmost ? firstFound.get() < leaf : numFound.get() >= 2;
+		}
+		
+		void found(int leaf) {
+			numFound.incrementAndGet();
+			firstFound.accumulateAndGet(leaf, Math::min);
+		}
+		
+		void run(ForkJoinPool pool) {
+			expand(pool.getParallelism() * LEAVES_PER_THREAD);
+			int n = leafVals.size();
+			workers = new SudokuPuzzle[n];
+			pool.invoke(new LeafTask(0, n));
 			
-			// calculates the difficulty factor
-			int diffFactor = (int) Math.pow(p.getNumCandidates() - 1, 2) * 100;
-			if (solvability == Solvable.NOT) {
-				difficulty += diffFactor;
+			// counts the solutions of all leaves
+			int num = 0, first = -1;
+			for (int i = 0; i < n; i++) {
+				if (workers[i] == null || workers[i].solvability == Solvable.NOT) continue;
+				Solvable s = workers[i].solvability;
+				num += s == Solvable.UNIQUE ? 1 : 2;
+				if (first < 0) first = i;
 			}
+			if (num == 0) return;	// not solvable
 			
-			for (int k = 1; k <= 9; k++) {	// solves each candidate value
-				if (flag[k]) {
-					p.setVal(k);
-					updateEmptyCell(emptyCell);
-					updateMissingVal(missingVal);
-					if (solve(emptyCell, missingVal)) {	// solves next step
-						p.setVal(0);					// reverts filled value
-						if (solvability == Solvable.NOT_UNIQUE) {
-							return true;
-						}
+			// searches the unfinished leaves before the first solution found
+			if (num >= 2) {
+				leftmost = true;
+				firstFound.set(first);
+				pool.invoke(new LeafTask(0, first));
+				first = firstFound.get();
+			}
+			root.solvability = num == 1 ? Solvable.UNIQUE : Solvable.NOT_UNIQUE;
+			root.difficulty = workers[first].difficulty;
+			root.solution = workers[first].solution;
+		}
+		
+		/**
+		 * Expands the search tree from the root puzzle level by level, keeping the order 
+		 * of solve, until there are at least the given number of leaves or all leaves 
+		 * are solutions.
+		 */
+		private void expand(int numLeaves) {
+			SudokuPuzzle sp = new SudokuPuzzle(root);
+			byte[] vals = sp.grid.vals;
+			leafVals.add(vals.clone());
+			leafFactors.add(0);
+			boolean expanded = true;
+			while (expanded && leafVals.size() > 0 && leafVals.size() < numLeaves) {
+				expanded = false;
+				List<byte[]> parents = new ArrayList<byte[]>(leafVals);
+				List<Integer> parentFactors = new ArrayList<Integer>(leafFactors);
+				leafVals.clear();
+				leafFactors.clear();
+				for (int i = 0; i < parents.size(); i++) {
+					System.arraycopy(parents.get(i), 0, vals, 0, 81);
+					long branch = sp.choose();
+					if (branch < 0) {	// a solution stays a leaf
+						leafVals.add(parents.get(i));
+						leafFactors.add(parentFactors.get(i));
+						continue;
+					}
+					expanded = true;
+					int index = (int) branch & 0xFF;
+					int setVal = (int) (branch >>> 8) & 0xF;
+					int mask = (int) (branch >>> 16) & 0xFFFF;
+					int num = (int) (branch >>> 32);
+					int factor = parentFactors.get(i) + (num - 1) * (num - 1) * 100;
+					for (int k = 0; k <= 9; k++) {
+						if ((mask & 1 << k) == 0) continue;
+						int q = setVal == 0 ? index : Grid.SET_CELLS[index][k];
+						byte[] child = parents.get(i).clone();
+						child[q] = (byte) (setVal == 0 ? k : setVal);
+						leafVals.add(child);
+						leafFactors.add(factor);
 					}
 				}
 			}
-			// not solvable, reverts filled value and added difficulty factor
-			p.setVal(0);
-			if (solvability == Solvable.NOT) {
-				difficulty -= diffFactor;
-			}
 		}
-		else {
-			// solves the missing value in set with smallest number of candidate cells
-			MissingVal v = missingVal.poll();
-			List<Cell> possibleCells = v.getPossibleCells();
+		
+		/**
+		 * Solves the leaves of a range, splitting it in halves.
+		 */
+		private class LeafTask extends RecursiveAction {
 			
-			// calculates the difficulty factor
-			int diffFactor = (int) Math.pow(possibleCells.size() - 1, 2) * 100;
-			if (solvability == Solvable.NOT) {
-				difficulty += diffFactor;
+			private static final long serialVersionUID = 1L;
+			
+			private final int from, to;
+			
+			LeafTask(int from, int to) {
+				this.from = from;
+				this.to = to;
 			}
 			
-			for (int k = 0; k < possibleCells.size(); k++) {	// solves each candidate cell
-				Cell p = possibleCells.get(k);
-				p.setVal(v.getVal());
-				updateEmptyCell(emptyCell);
-				updateMissingVal(missingVal);
-				if (solve(emptyCell, missingVal)) {	// solves next
-					p.setVal(0);					// reverts filled value
-					if (solvability == Solvable.NOT_UNIQUE) {
-						return true;
-					}
+			@Override
+			protected void compute() {
+				if (to - from > 1) {
+					int mid = (from + to) >>> 1;
+					invokeAll(new LeafTask(from, mid), new LeafTask(mid, to));
+					return;
 				}
-				p.setVal(0);	// not solvable, reverts filled value
-			}
-			// not solvable, reverts added difficulty factor
-			if (solvability == Solvable.NOT) {
-				difficulty -= diffFactor;
+				if (to == from) return;
+				// a finished leaf or one with a solution is kept
+				if (workers[from] != null && 
+					(workers[from].solvability != Solvable.NOT || workers[from].search == null)) return;
+				if (Search.this.isCancelled(from)) return;
+				
+				SudokuPuzzle sp = new SudokuPuzzle(root);
+				System.arraycopy(leafVals.get(from), 0, sp.grid.vals, 0, 81);
+				sp.solvability = Solvable.NOT;
+				sp.difficulty = root.numEmptyCell + leafFactors.get(from);
+				sp.stopAt = leftmost ? Solvable.UNIQUE : Solvable.NOT_UNIQUE;
+				sp.search = Search.this;
+				sp.leaf = from;
+				sp.solve();
+				if (!Search.this.isCancelled(from)) sp.search = null;	// marks the leaf finished
+				workers[from] = sp;
 			}
+			
 		}
-		return false;	// not solvable
+		
 	}
 	
 	/**
@@ -253,6 +601,50 @@ public class SudokuPuzzle {
 	 */
 	public boolean uniquelySolvable() { return solvability == Solvable.UNIQUE; }
 	
+	/**
+	 * Returns the first solution found by the last update of the sudoku puzzle.
+	 * 
+	 * @return the 9*9 solution board, or null if the puzzle is not solvable
+	 */
+	public int[][] getSolution() {
+		if (solvability == Solvable.NOT) return null;
+		ensureUpdated();
+		int[][] board = new int[9][9];
+		for (int p = 0; p < 81; p++) {
+			board[p / 9][p % 9] = solutionVal(p);
+		}
+		return board;
+	}
+	
+	/**
+	 * Returns a snapshot of the current givens, solvability and difficulty.
+	 * 
+	 * @return the snapshot
+	 */
+	public Snapshot snapshot() {
+		ensureUpdated();
+		return new Snapshot(this);
+	}
+	
+	/**
+	 * Restores the given snapshot: cells that are givens in the snapshot are set to their 
+	 * solution values and the others are emptied. The cached solvability and difficulty 
+	 * are restored as well, so the puzzle does not need to be solved again.
+	 * 
+	 * @param snapshot the snapshot of a puzzle with the same solution values
+	 */
+	public void restore(Snapshot snapshot) {
+		byte[] vals = grid.vals, sltVals = grid.sltVals;
+		for (int p = 0; p < 81; p++) {
+			vals[p] = snapshot.isGiven(p) ? sltVals[p] : 0;
+		}
+		System.arraycopy(snapshot.solution, 0, solution, 0, solution.length);
+		solvability = snapshot.solvability;
+		difficulty = snapshot.difficulty;
+		numEmptyCell = snapshot.numEmptyCell;
+		stale = false;
+	}
+	
 	/**
 	 * Sets the specified Cell to the given value.
 	 * 
@@ -261,15 +653,16 @@ public class SudokuPuzzle {
 	 * @param val the value
 	 */
 	public void setVal(int r, int c, int val) {
+		int p = r * 9 + c;
 		// updates the number of empty cells accordingly
-		if (puzzle[r][c].isEmpty() && val > 0) {
+		if (grid.vals[p] == 0 && val > 0) {
 			numEmptyCell--;
 		}
-		else if (!puzzle[r][c].isEmpty() && val == 0) {
+		else if (grid.vals[p] != 0 && val == 0) {
 			numEmptyCell++;
 		}
 		
-		puzzle[r][c].setVal(val);
+		grid.vals[p] = (byte) val;
 	}
 	
 	/**
@@ -288,6 +681,7 @@ public class SudokuPuzzle {
 	 * @return the difficulty level
 	 */
 	public int getLevel() {
+		int difficulty = getDifficulty();
 		if (difficulty <= 26) { return 1; }
 		if (difficulty <= 40) { return 2; }
 		if (difficulty < 100) { return 3; }
@@ -297,26 +691,111 @@ public class SudokuPuzzle {
 	}
 	
 	/**
-	 * Returns the Cell of the given cell number.
+	 * Returns the Cell view of the given cell number. Views are created on the first 
+	 * call and read and write the grid directly.
 	 * 
 	 * @param p the cell number
 	 * @return the Cell
 	 */
-	public Cell getCell(int p) { return puzzle[p / 9][p % 9]; }
+	public Cell getCell(int p) {
+		if (cells == null) {
+			cells = new Cell[81];
+			for (int q = 0; q < 81; q++) {
+				cells[q] = new Cell(grid, q);
+			}
+		}
+		return cells[p];
+	}
+	
+	public Cell getCell(int r, int c) { return getCell(r * 9 + c); }
+	
+	/**
+	 * Returns a Set view of the given set number, which reads the grid directly.
+	 * 
+	 * @param s the set number: rows 0-8, columns 9-17 and blocks 18-26
+	 * @return the Set
+	 */
+	public Set getSet(int s) { return new Set(this, s); }
 	
-	public Cell getCell(int r, int c) { return puzzle[r][c]; }
+	public int getVal(int p) { return grid.vals[p]; }
+	
+	public int getSltVal(int p) { return grid.sltVals[p]; }
+	
+	Grid getGrid() { return grid; }
+	
+	/**
+	 * Returns the current values of the sudoku puzzle.
+	 * 
+	 * @return the 9*9 board with 0 for empty cells
+	 */
+	public int[][] getPuzzleBoard() { return grid.toBoard(); }
 	
-	public int getDifficulty() { return difficulty; }
+	public Solvable getSolvability() { return solvability; }
+	
+	public int getDifficulty() {
+		ensureUpdated();
+		return difficulty;
+	}
 	
 	public int getNumEmptyCell() { return numEmptyCell; }
 	
+	public int getNumClues() { return 81 - numEmptyCell; }
+	
+	/**
+	 * Returns the number of searches run on this puzzle: full solves, first-solution 
+	 * solves and existence checks.
+	 */
+	int getNumSolves() { return numSolves; }
+	
+	/**
+	 * Parses a 9*9 board from the given 81-character grid string, read row by row.
+	 * Digits 1-9 are values; '0' or '.' is an empty cell.
+	 * 
+	 * @param grid the grid string
+	 * @return the 9*9 board
+	 * @throws IllegalArgumentException if the grid string is malformed
+	 */
+	public static int[][] parseGrid(String grid) {
+		if (grid.length() != 81) {
+			throw new IllegalArgumentException("Grid must have 81 cells: " + grid);
+		}
+		int[][] board = new int[9][9];
+		for (int p = 0; p < 81; p++) {
+			char ch = grid.charAt(p);
+			if (ch >= '1' && ch <= '9') {
+				board[p / 9][p % 9] = ch - '0';
+			}
+			else if (ch != '0' && ch != '.') {
+				throw new IllegalArgumentException("Invalid cell '" + ch + "' in grid: " + grid);
+			}
+		}
+		return board;
+	}
+	
+	/**
+	 * Formats the given 9*9 board as an 81-character grid string, row by row, with 
+	 * '0' for empty cells.
+	 * 
+	 * @param board the 9*9 board
+	 * @return the grid string
+	 */
+	public static String formatGrid(int[][] board) {
+		StringBuilder sb = new StringBuilder(81);
+		for (int i = 0; i < 9; i++) {
+			for (int j = 0; j < 9; j++) {
+				sb.append((char) ('0' + board[i][j]));
+			}
+		}
+		return sb.toString();
+	}
+	
 	public void printPuzzle() {
 		for (int i = 0; i < 9; i++) {
 			System.out.print("[");
 			for (int j = 0; j < 8; j++) {
-				System.out.print(puzzle[i][j].getVal() + ",");
+				System.out.print(grid.vals[i * 9 + j] + ",");
 			}
-			System.out.println(puzzle[i][8].getVal() + "]");
+			System.out.println(grid.vals[i * 9 + 8] + "]");
 		}
 	}
 	
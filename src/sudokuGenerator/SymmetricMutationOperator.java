@@ -0,0 +1,41 @@
+package sudokuGenerator;
+
+import java.util.Random;
+
+/**
+ * Randomly adds or removes the orbit of a random cell under the given symmetry, so the 
+ * givens keep the symmetry. With Symmetry.POINT, this is the move of 
+ * RandomMutationOperator.
+ */
+public class SymmetricMutationOperator implements MutationOperator {
+
+	private final Symmetry symmetry;
+
+	public SymmetricMutationOperator(Symmetry symmetry) {
+		this.symmetry = symmetry;
+	}
+
+	@Override
+	public void reset(SudokuPuzzle puzzle, int[][] board, int maxDifficulty) {}
+
+	@Override
+	public void mutate(SudokuPuzzle puzzle, int[][] board, Random rand) {
+		int[] orbit = symmetry.orbit(rand.nextInt(81));
+		
+		if (rand.nextBoolean()) {
+			// removes the orbit
+			for (int p : orbit) {
+				puzzle.setVal(p / 9, p % 9, 0);
+			}
+			puzzle.updateAfterRemoval(orbit);
+		}
+		else {
+			// adds the orbit with the original values
+			for (int p : orbit) {
+				puzzle.setVal(p / 9, p % 9, board[p / 9][p % 9]);
+			}
+			puzzle.updateAfterAddition(orbit);
+		}
+	}
+
+}
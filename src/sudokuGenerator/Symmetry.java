@@ -0,0 +1,60 @@
+package sudokuGenerator;
+
+/**
+ * The symmetries of a givens layout. A layout has a symmetry if the map of the 
+ * symmetry takes givens to givens. The orbit of a cell is the set of cells the map 
+ * takes it to when applied repeatedly, so a symmetric layout gives or empties whole 
+ * orbits.
+ */
+public enum Symmetry {
+	NONE,		// no symmetry
+	POINT,		// 180 degree rotation about the center
+	MIRROR,		// reflection about the middle column
+	DIAGONAL,	// reflection about the main diagonal
+	ROT90;		// 90 degree rotation about the center
+
+	// the orbit of each cell under each symmetry
+	private static final int[][][] ORBITS = new int[values().length][81][];
+
+	static {
+		for (Symmetry s : values()) {
+			for (int q = 0; q < 81; q++) {
+				int n = 1;
+				for (int m = s.map(q); m != q; m = s.map(m)) n++;
+				int[] orbit = ORBITS[s.ordinal()][q] = new int[n];
+				orbit[0] = q;
+				for (int k = 1; k < n; k++) {
+					orbit[k] = s.map(orbit[k - 1]);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns the cell the symmetry maps the given cell to.
+	 * 
+	 * @param p the cell number
+	 * @return the image of the cell
+	 */
+	public int map(int p) {
+		int r = p / 9, c = p % 9;
+		switch (this) {
+			case POINT: return (8 - r) * 9 + 8 - c;
+			case MIRROR: return r * 9 + 8 - c;
+			case DIAGONAL: return c * 9 + r;
+			case ROT90: return c * 9 + 8 - r;
+			default: return p;
+		}
+	}
+
+	/**
+	 * Returns the orbit of the given cell, starting with the cell.
+	 * 
+	 * @param p the cell number
+	 * @return the cells of the orbit, 1 to 4 of them
+	 */
+	public int[] orbit(int p) {
+		return ORBITS[ordinal()][p];
+	}
+
+}
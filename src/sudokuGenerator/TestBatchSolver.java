@@ -0,0 +1,54 @@
+package sudokuGenerator;
+
+import java.util.*;
+
+public class TestBatchSolver {
+
+	public static void main(String[] args) {
+		PuzzleGenerator pg = new PuzzleGenerator(19870511);
+
+		// builds a fixed corpus of generated puzzles of every level
+		List<int[][]> boards = pg.generateBoards(60);
+		List<String> corpus = new ArrayList<String>();
+		for (int i = 0; i < boards.size(); i++) {
+			SudokuPuzzle sp = pg.generatePuzzleByLevel(boards.get(i), i % 6 + 1);
+			if (sp == null) continue;
+			corpus.add(SudokuPuzzle.formatGrid(sp.getPuzzleBoard()));
+		}
+
+		// repeats the corpus into a batch
+		String[] grids = new String[corpus.size() * 100];
+		for (int i = 0; i < grids.length; i++) {
+			grids[i] = corpus.get(i % corpus.size());
+		}
+		System.out.println(corpus.size() + " puzzles in corpus, " + grids.length + " grids per batch.");
+
+		BatchSolver bs = new BatchSolver();
+		for (int round = 0; round < 3; round++) {
+			// sequential baseline: a new SudokuPuzzle per grid
+			long start = System.nanoTime();
+			for (String grid : grids) {
+				int[][] board = SudokuPuzzle.parseGrid(grid);
+				new SudokuPuzzle(board, board);
+			}
+			report("Sequential", grids.length, start);
+
+			// batch
+			start = System.nanoTime();
+			List<BatchSolver.Result> results = bs.solveAll(grids);
+			report("Batch     ", grids.length, start);
+
+			int unique = 0;
+			for (BatchSolver.Result r : results) {
+				if (r.uniquelySolvable()) unique++;
+			}
+			System.out.println(unique + " of " + results.size() + " grids uniquely solvable.");
+		}
+	}
+
+	static void report(String name, int num, long start) {
+		double sec = (System.nanoTime() - start) / 1e9;
+		System.out.println(name + "\t" + String.format("%.0f", num / sec) + " puzzles/second");
+	}
+
+}
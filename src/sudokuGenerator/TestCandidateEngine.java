@@ -0,0 +1,49 @@
+package sudokuGenerator;
+
+import java.util.*;
+
+public class TestCandidateEngine {
+
+	public static void main(String[] args) {
+		int num = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+		CandidateEngine engine = CandidateEngine.get();
+		ScalarCandidateEngine scalar = new ScalarCandidateEngine();
+		System.out.println("Engine: " + engine.getClass().getSimpleName());
+
+		// puzzles with random empty cells from a few boards, some with a conflicting value
+		PuzzleGenerator pg = new PuzzleGenerator(19870511);
+		List<int[][]> boards = pg.generateBoards(100);
+		Random rand = new Random(1);
+		byte[] vals = new byte[num * 81];
+		for (int i = 0; i < num; i++) {
+			int[][] board = boards.get(i % boards.size());
+			for (int p = 0; p < 81; p++) {
+				vals[i * 81 + p] = rand.nextInt(81) < 30 ? (byte) board[p / 9][p % 9] : 0;
+			}
+			if (i % 10 == 0) vals[i * 81 + rand.nextInt(81)] = (byte) (rand.nextInt(9) + 1);
+		}
+
+		// checks the engine against the scalar engine
+		short[] expected = new short[vals.length], masks = new short[vals.length];
+		boolean[] expectedConflicts = new boolean[num], conflicts = new boolean[num];
+		scalar.computeCandidates(vals, expected, expectedConflicts, num);
+		engine.computeCandidates(vals, masks, conflicts, num);
+		System.out.println("Same results: " +
+			(Arrays.equals(expected, masks) && Arrays.equals(expectedConflicts, conflicts)));
+
+		for (int round = 0; round < 5; round++) {
+			long start = System.nanoTime();
+			scalar.computeCandidates(vals, masks, conflicts, num);
+			report("Scalar", num, start);
+			start = System.nanoTime();
+			engine.computeCandidates(vals, masks, conflicts, num);
+			report("Engine", num, start);
+		}
+	}
+
+	static void report(String name, int num, long start) {
+		double sec = (System.nanoTime() - start) / 1e9;
+		System.out.println(String.format("%s\t%.0f puzzles/s", name, num / sec));
+	}
+
+}
@@ -0,0 +1,71 @@
+package sudokuGenerator;
+
+import java.lang.ref.Reference;
+import java.util.*;
+
+public class TestGameSession {
+
+	public static void main(String[] args) {
+		int num = args.length > 0 ? Integer.parseInt(args[0]) : 100;
+		PuzzleGenerator pg = new PuzzleGenerator(20200512);
+		PuzzleStore store = new PuzzleStore();
+		for (int[][] board : pg.generateBoards(num)) {
+			SudokuPuzzle sp = pg.generatePuzzle(board);
+			if (sp.uniquelySolvable()) store.append(sp);
+		}
+
+		// plays every puzzle by following the hints, with a wrong move now and then
+		Random rand = new Random(1);
+		int[] kinds = new int[GameSession.Hint.Kind.values().length];
+		long hintNanos = 0, moveNanos = 0, conflictNanos = 0;
+		int hints = 0, moves = 0, checks = 0, unsolved = 0, missed = 0;
+		for (int i = 0; i < store.size(); i++) {
+			GameSession gs = new GameSession(store, i);
+			while (true) {
+				long start = System.nanoTime();
+				GameSession.Hint hint = gs.nextStep();
+				hintNanos += System.nanoTime() - start;
+				hints++;
+				if (hint == null) break;
+				kinds[hint.getKind().ordinal()]++;
+
+				int p = hint.getCell(), v = hint.getValue();
+				if (hint.getKind() != GameSession.Hint.Kind.MISTAKE && rand.nextInt(8) == 0) {
+					v = 1 + rand.nextInt(9);	// a player mistake
+				}
+				start = System.nanoTime();
+				boolean consistent = gs.place(p, v);
+				moveNanos += System.nanoTime() - start;
+				moves++;
+
+				start = System.nanoTime();
+				int[] conflicts = gs.getConflicts();
+				conflictNanos += System.nanoTime() - start;
+				checks++;
+				if (consistent == (conflicts.length > 0 && Arrays.binarySearch(conflicts, p) >= 0)) missed++;
+			}
+			if (!gs.isSolved() || !Arrays.deepEquals(gs.toBoard(), store.getBoard(i))) unsolved++;
+		}
+		System.out.println(String.format("%d games: %d hints %.2f us each, %d moves %.2f us each, " +
+			"%d conflict checks %.2f us each", store.size(), hints, hintNanos / 1e3 / hints, moves,
+			moveNanos / 1e3 / moves, checks, conflictNanos / 1e3 / checks));
+		System.out.println("hints by kind " + Arrays.toString(GameSession.Hint.Kind.values()) + ": " +
+			Arrays.toString(kinds) + ", " + unsolved + " unsolved, " + missed + " wrong consistency answers");
+
+		// the heap taken by many open sessions
+		int sessions = 50000;
+		GameSession[] open = new GameSession[sessions];
+		Runtime rt = Runtime.getRuntime();
+		System.gc();
+		long before = rt.totalMemory() - rt.freeMemory();
+		for (int k = 0; k < sessions; k++) {
+			open[k] = new GameSession(store, k % store.size());
+		}
+		System.gc();
+		long after = rt.totalMemory() - rt.freeMemory();
+		Reference.reachabilityFence(open);
+		System.out.println(String.format("%d sessions: %.0f bytes each", sessions,
+			(double) (after - before) / sessions));
+	}
+
+}
@@ -0,0 +1,51 @@
+package sudokuGenerator;
+
+import java.util.*;
+
+import sudokuGenerator.SudokuPuzzle.Solvable;
+
+public class TestIncrementalUpdate {
+
+	public static void main(String[] args) {
+		int num = args.length > 0 ? Integer.parseInt(args[0]) : 30;
+		int moves = args.length > 1 ? Integer.parseInt(args[1]) : 500;
+		PuzzleGenerator pg = new PuzzleGenerator(20200520);
+		Random rand = new Random(7);
+		MutationOperator operator = new RandomMutationOperator();
+
+		// random walks of generator moves, each state checked against a full solve
+		int states = 0, unique = 0, solvabilityMismatches = 0, countMismatches = 0;
+		int difficultyMismatches = 0, solutionMismatches = 0;
+		for (int[][] board : pg.generateBoards(num)) {
+			SudokuPuzzle puzzle = new SudokuPuzzle(board, board);
+			SudokuPuzzle.Snapshot last = puzzle.snapshot();
+			for (int m = 0; m < moves; m++) {
+				operator.mutate(puzzle, board, rand);
+				SudokuPuzzle full = new SudokuPuzzle(puzzle.getPuzzleBoard(), board);
+				states++;
+
+				// the incremental update against the full solve
+				if (puzzle.getSolvability() != full.getSolvability()) solvabilityMismatches++;
+				if (puzzle.uniquelySolvable()) {
+					unique++;
+					if (puzzle.getDifficulty() != full.getDifficulty()) difficultyMismatches++;
+					if (!Arrays.deepEquals(puzzle.getSolution(), full.getSolution())) solutionMismatches++;
+				}
+
+				// the propagating counter against the full solve
+				int count = new Grid(full.getGrid()).countSolutions(2);
+				Solvable counted = count == 0 ? Solvable.NOT : count == 1 ? Solvable.UNIQUE : Solvable.NOT_UNIQUE;
+				if (counted != full.getSolvability()) countMismatches++;
+
+				// stays near the uniqueness boundary, as the generator does
+				if (puzzle.uniquelySolvable()) last = puzzle.snapshot();
+				else puzzle.restore(last);
+			}
+		}
+		System.out.println(String.format("%d states (%d uniquely solvable): %d solvability, " +
+			"%d difficulty and %d solution mismatches of the incremental update, %d solvability " +
+			"mismatches of Grid.countSolutions", states, unique, solvabilityMismatches,
+			difficultyMismatches, solutionMismatches, countMismatches));
+	}
+
+}
@@ -0,0 +1,61 @@
+package sudokuGenerator;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.*;
+
+public class TestInventory {
+
+	public static void main(String[] args) throws IOException {
+		int level = args.length > 0 ? Integer.parseInt(args[0]) : 5;
+		int num = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+		Path file = Files.createTempFile("inventory", ".bin");
+		Files.delete(file);
+
+		// a cold start generates its first puzzle
+		long start = System.nanoTime();
+		PuzzleInventory inv = PuzzleInventory.load(file, 20200425);
+		SudokuPuzzle first = inv.take(level);
+		long coldNanos = System.nanoTime() - start;
+
+		// fills the stock, serves half of it and saves the rest
+		inv.fill(level, num);
+		List<String> served = new ArrayList<>();
+		served.add(SudokuPuzzle.formatGrid(first.getPuzzleBoard()));
+		for (int i = 0; i < num / 2; i++) {
+			served.add(SudokuPuzzle.formatGrid(inv.take(level).getPuzzleBoard()));
+		}
+		inv.save(file);
+
+		// a warm start serves the saved puzzles, then continues the random sequence
+		start = System.nanoTime();
+		PuzzleInventory restarted = PuzzleInventory.load(file, 0);
+		SudokuPuzzle next = restarted.take(level);
+		long warmNanos = System.nanoTime() - start;
+		served.add(SudokuPuzzle.formatGrid(next.getPuzzleBoard()));
+		int bad = next.uniquelySolvable() && next.getLevel() == level ? 0 : 1;
+		for (int i = 1; i < num; i++) {
+			SudokuPuzzle sp = restarted.take(level);
+			served.add(SudokuPuzzle.formatGrid(sp.getPuzzleBoard()));
+			if (!sp.uniquelySolvable() || sp.getLevel() != level) bad++;
+		}
+		Files.delete(file);
+
+		// the same inventory without the restart
+		PuzzleInventory uninterrupted = new PuzzleInventory(20200425);
+		uninterrupted.take(level);
+		uninterrupted.fill(level, num);
+		int mismatches = 0;
+		for (int i = 1; i < served.size(); i++) {
+			String grid = SudokuPuzzle.formatGrid(uninterrupted.take(level).getPuzzleBoard());
+			if (!grid.equals(served.get(i))) mismatches++;
+		}
+
+		int duplicates = served.size() - new HashSet<>(served).size();
+		System.out.println(String.format("level %d: first puzzle in %.1f ms cold, %.1f ms after restart",
+			level, coldNanos / 1e6, warmNanos / 1e6));
+		System.out.println(String.format("%d puzzles served: %d duplicates, %d mismatches against " +
+			"an uninterrupted run, %d of the wrong level", served.size(), duplicates, mismatches, bad));
+	}
+
+}
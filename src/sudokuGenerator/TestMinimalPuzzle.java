@@ -0,0 +1,70 @@
+package sudokuGenerator;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+
+public class TestMinimalPuzzle {
+
+	public static void main(String[] args) {
+		int num = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+		int maxClues = args.length > 1 ? Integer.parseInt(args[1]) : 22;
+		ForkJoinPool single = new ForkJoinPool(1);
+		ForkJoinPool pool = new ForkJoinPool(4);
+
+		// one minimization per board, sequential and in parallel with the same seed
+		PuzzleGenerator seq = new PuzzleGenerator(19870511);
+		PuzzleGenerator par = new PuzzleGenerator(19870511);
+		List<int[][]> boards = seq.generateBoards(num);
+		par.generateBoards(num);
+		int[] clues = new int[82];
+		int mismatches = 0, notMinimal = 0;
+		long seqNanos = 0, parNanos = 0;
+		for (int[][] board : boards) {
+			long start = System.nanoTime();
+			SudokuPuzzle a = seq.generateMinimalPuzzle(board, 81, single);
+			seqNanos += System.nanoTime() - start;
+			start = System.nanoTime();
+			SudokuPuzzle b = par.generateMinimalPuzzle(board, 81, pool);
+			parNanos += System.nanoTime() - start;
+
+			if (!Arrays.deepEquals(a.getPuzzleBoard(), b.getPuzzleBoard())) mismatches++;
+			if (!a.uniquelySolvable() || !isMinimal(a, board)) notMinimal++;
+			clues[a.getNumClues()]++;
+		}
+		System.out.println(String.format("%d minimizations: %.1f ms sequential, %.1f ms with 4 threads, " +
+			"%d mismatches, %d not minimal", num, seqNanos / 1e6 / num, parNanos / 1e6 / num,
+			mismatches, notMinimal));
+		for (int c = 17; c <= 81; c++) {
+			if (clues[c] > 0) System.out.println(c + " clues: " + clues[c]);
+		}
+
+		// low-clue puzzles
+		int generated = 0;
+		long start = System.nanoTime();
+		for (int[][] board : boards) {
+			SudokuPuzzle sp = seq.generateMinimalPuzzle(board, maxClues, single);
+			if (sp != null) generated++;
+		}
+		System.out.println(String.format("%d of %d boards with a minimal puzzle of at most %d clues, %.0f ms per board",
+			generated, num, maxClues, (System.nanoTime() - start) / 1e6 / num));
+		single.shutdown();
+		pool.shutdown();
+	}
+
+	/**
+	 * Checks by full solves that removing any clue loses uniqueness.
+	 */
+	static boolean isMinimal(SudokuPuzzle sp, int[][] board) {
+		int[][] puzzleBoard = sp.getPuzzleBoard();
+		for (int p = 0; p < 81; p++) {
+			int r = p / 9, c = p % 9;
+			if (puzzleBoard[r][c] == 0) continue;
+			puzzleBoard[r][c] = 0;
+			boolean unique = new SudokuPuzzle(puzzleBoard, board).uniquelySolvable();
+			puzzleBoard[r][c] = board[r][c];
+			if (unique) return false;
+		}
+		return true;
+	}
+
+}
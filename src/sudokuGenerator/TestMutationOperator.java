@@ -0,0 +1,72 @@
+package sudokuGenerator;
+
+import java.util.*;
+
+public class TestMutationOperator {
+
+	/**
+	 * Counts the moves, the kept moves and the searches of the wrapped operator.
+	 */
+	static class Counting implements MutationOperator {
+
+		final MutationOperator operator;
+		long moves, accepted, solves;
+		private SudokuPuzzle puzzle;	// the puzzle of the current board
+		private int numSolves;			// its searches counted so far
+
+		Counting(MutationOperator operator) { this.operator = operator; }
+
+		@Override
+		public void reset(SudokuPuzzle puzzle, int[][] board, int maxDifficulty) {
+			count(puzzle);
+			operator.reset(puzzle, board, maxDifficulty);
+		}
+
+		@Override
+		public void mutate(SudokuPuzzle puzzle, int[][] board, Random rand) {
+			count(puzzle);
+			operator.mutate(puzzle, board, rand);
+			moves++;
+			if (puzzle.uniquelySolvable()) accepted++;
+		}
+
+		void count(SudokuPuzzle puzzle) {
+			if (this.puzzle != puzzle) {
+				this.puzzle = puzzle;
+				numSolves = 0;
+			}
+			solves += puzzle.getNumSolves() - numSolves;
+			numSolves = puzzle.getNumSolves();
+		}
+
+	}
+
+	public static void main(String[] args) {
+		int num = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+		System.out.println("Operator\tLevel\tPuzzles\tAccepted\tSolves/puzzle\tms/puzzle");
+		for (int level = 1; level <= 6; level++) {
+			run("Random", new RandomMutationOperator(), level, num);
+			run("Guided", new GuidedMutationOperator(), level, num);
+		}
+	}
+
+	static void run(String name, MutationOperator operator, int level, int num) {
+		PuzzleGenerator pg = new PuzzleGenerator(19870511);
+		Counting counting = new Counting(operator);
+		pg.setMutationOperator(counting);
+		int generated = 0;
+		long start = System.nanoTime();
+		for (int i = 0; i < num; i++) {
+			SudokuPuzzle sp = pg.generatePuzzleByLevel(pg.generateBoard(), level);
+			if (sp != null) {
+				counting.count(sp);		// the final difficulty
+				generated++;
+			}
+		}
+		long ms = (System.nanoTime() - start) / 1000000;
+		System.out.println(String.format("%s\t%d\t%d/%d\t%.1f%%\t%.0f\t%d",
+			name, level, generated, num, 100.0 * counting.accepted / Math.max(1, counting.moves),
+			(double) counting.solves / Math.max(1, generated), ms / Math.max(1, generated)));
+	}
+
+}
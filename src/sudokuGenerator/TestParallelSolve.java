@@ -0,0 +1,71 @@
+package sudokuGenerator;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+
+public class TestParallelSolve {
+
+	// well-known hard puzzles
+	static final String[] HARD = {
+		"8..........36......7..9.2...5...7.......457.....1...3...1....68..85...1..9....4..",
+		"1....7.9..3..2...8..96..5....53..9...1..8...26....4...3......1..4......7..7...3..",
+		"4.....8.5.3..........7......2.....6.....8.4......1.......6.3.7.5..2.....1.4......",
+	};
+
+	public static void main(String[] args) {
+		int parallelism = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+		ForkJoinPool pool = new ForkJoinPool(parallelism);
+
+		// hard puzzles, level 6 puzzles, and the same with givens removed
+		List<int[][]> grids = new ArrayList<int[][]>();
+		for (String grid : HARD) {
+			grids.add(SudokuPuzzle.parseGrid(grid));
+		}
+		PuzzleGenerator pg = new PuzzleGenerator(19870511);
+		pg.setMutationOperator(new GuidedMutationOperator());
+		Random rand = new Random(1);
+		for (int i = 0; i < 10; i++) {
+			SudokuPuzzle sp = pg.generatePuzzleByLevel(pg.generateBoard(), 6);
+			if (sp == null) continue;
+			int[][] puzzleBoard = sp.getPuzzleBoard();
+			grids.add(puzzleBoard);
+			int[][] loose = sp.getPuzzleBoard();
+			for (int k = 0; k < 3; k++) {
+				loose[rand.nextInt(9)][rand.nextInt(9)] = 0;
+			}
+			grids.add(loose);
+		}
+		System.out.println(grids.size() + " grids, parallelism " + parallelism + ".");
+
+		for (int round = 0; round < 3; round++) {
+			long sequential = 0, parallel = 0;
+			int mismatches = 0;
+			for (int[][] grid : grids) {
+				SudokuPuzzle a = new SudokuPuzzle();
+				a.load(grid, grid);
+				long start = System.nanoTime();
+				a.updatePuzzle();
+				sequential += System.nanoTime() - start;
+
+				SudokuPuzzle b = new SudokuPuzzle();
+				b.load(grid, grid);
+				start = System.nanoTime();
+				b.updatePuzzle(pool);
+				parallel += System.nanoTime() - start;
+
+				if (a.getSolvability() != b.getSolvability() || a.getDifficulty() != b.getDifficulty() ||
+					(a.getSolvability() != SudokuPuzzle.Solvable.NOT &&
+						!Arrays.deepEquals(a.getSolution(), b.getSolution()))) {
+					mismatches++;
+					System.out.println("Mismatch: " + SudokuPuzzle.formatGrid(grid) + " " +
+						a.getSolvability() + "/" + b.getSolvability() + " " +
+						a.getDifficulty() + "/" + b.getDifficulty());
+				}
+			}
+			System.out.println(String.format("Sequential %.1f ms\tParallel %.1f ms\t%d mismatches",
+				sequential / 1e6, parallel / 1e6, mismatches));
+		}
+		pool.shutdown();
+	}
+
+}
@@ -0,0 +1,85 @@
+package sudokuGenerator;
+
+import java.sql.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+public class TestPuzzleCache {
+
+	public static void main(String[] args) throws Exception {
+		int requests = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+		String url = args.length > 1 ? args[1] : null;
+
+		// a local database if given, or else generated puzzles behind a simulated round trip
+		PuzzleSource source;
+		Connection conn = null;
+		List<Integer> levels = new ArrayList<>(List.of(1, 2, 3, 4, 5, 6));
+		if (url != null) {
+			conn = DriverManager.getConnection(url, PostgreSqlConnection.DB_USER, PostgreSqlConnection.DB_PASSWORD);
+			source = new JdbcPuzzleSource(conn);
+		}
+		else {
+			PuzzleGenerator pg = new PuzzleGenerator(20200501);
+			PuzzleStore store = new PuzzleStore();
+			for (int[][] board : pg.generateBoards(150)) {
+				SudokuPuzzle sp = pg.generatePuzzle(board);
+				if (sp.uniquelySolvable()) store.append(sp);
+			}
+			source = new MemoryPuzzleSource(store, 20);
+			levels.removeIf(lv -> store.size(lv) == 0);
+		}
+
+		// one uncached request for comparison
+		long start = System.nanoTime();
+		source.load(6, 1, new PuzzleStore(1));
+		System.out.println(String.format("uncached request: %.1f ms", (System.nanoTime() - start) / 1e6));
+
+		try (PuzzleCache cache = new PuzzleCache(source, 64, 16, 8)) {
+			start = System.nanoTime();
+			cache.warm();
+			System.out.println(String.format("warm-up: %.1f ms", (System.nanoTime() - start) / 1e6));
+
+			// four request threads asking for random levels that have puzzles
+			ExecutorService pool = Executors.newFixedThreadPool(4);
+			List<Future<long[]>> futures = new ArrayList<>();
+			for (int t = 0; t < 4; t++) {
+				futures.add(pool.submit(() -> {
+					long maxNanos = 0, bad = 0;
+					Random rand = new Random();
+					Grid grid = new Grid();
+					for (int i = 0; i < requests / 4; i++) {
+						int level = levels.get(rand.nextInt(levels.size()));
+						long s = System.nanoTime();
+						SudokuPuzzle sp = cache.get(level);
+						maxNanos = Math.max(maxNanos, System.nanoTime() - s);
+						if (sp != null && sp.getLevel() != level) bad++;
+						// a restored puzzle is marked unique without solving it, so it is solved again
+						if (sp != null && i % 50 == 0) {
+							grid.load(sp.getPuzzleBoard(), sp.getSolution());
+							if (grid.countSolutions(2) != 1) bad++;
+						}
+						// a restored puzzle matches a fresh solve
+						if (sp != null && i % 500 == 0) {
+							SudokuPuzzle solved = new SudokuPuzzle(sp.getPuzzleBoard(), sp.getSolution());
+							if (solved.getDifficulty() != sp.getDifficulty()) bad++;
+						}
+					}
+					return new long[] { maxNanos, bad };
+				}));
+			}
+			long maxNanos = 0, bad = 0;
+			for (Future<long[]> f : futures) {
+				maxNanos = Math.max(maxNanos, f.get()[0]);
+				bad += f.get()[1];
+			}
+			long nanos = System.nanoTime() - start;
+			pool.shutdown();
+
+			System.out.println(String.format("%d requests: %.2f us each, max %.1f ms, %d bad puzzles",
+				requests, nanos / 1e3 / requests, maxNanos / 1e6, bad));
+			cache.printMetrics();
+		}
+		if (conn != null) conn.close();
+	}
+
+}
@@ -0,0 +1,78 @@
+package sudokuGenerator;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+public class TestPuzzlePublisher {
+
+	public static void main(String[] args) throws InterruptedException {
+		// lazy stream: the first puzzle arrives after one board, not after the batch
+		PuzzleGenerator pg = new PuzzleGenerator(19870511);
+		long start = System.nanoTime();
+		pg.puzzles(3).limit(5).forEach(sp -> System.out.println(
+			"Stream puzzle at " + (System.nanoTime() - start) / 1000000 + " ms.\tDifficulty " + sp.getDifficulty()
+		));
+
+		// publisher: one slow subscriber drives the demand
+		CountDownLatch done = new CountDownLatch(1);
+		try (PuzzlePublisher publisher = new PuzzlePublisher(19870511, 4, Runtime.getRuntime().availableProcessors(), 4)) {
+			long subscribed = System.nanoTime();
+			publisher.subscribe(new Flow.Subscriber<SudokuPuzzle>() {
+				Flow.Subscription subscription;
+				int received;
+
+				public void onSubscribe(Flow.Subscription s) {
+					subscription = s;
+					s.request(1);
+				}
+
+				public void onNext(SudokuPuzzle sp) {
+					System.out.println(
+						"Published puzzle at " + (System.nanoTime() - subscribed) / 1000000 + " ms.\tDifficulty " + sp.getDifficulty()
+					);
+					if (++received == 10) {
+						subscription.cancel();
+						done.countDown();
+					}
+					else {
+						subscription.request(1);
+					}
+				}
+
+				public void onError(Throwable t) { t.printStackTrace(); }
+
+				public void onComplete() { done.countDown(); }
+			});
+			done.await();
+		}
+
+		// resubscribing right after the last subscriber cancelled, while the producers 
+		// are stopping, still gets puzzles
+		try (PuzzlePublisher publisher = new PuzzlePublisher(19870511, 3, 2, 4)) {
+			int stalled = 0;
+			for (int round = 0; round < 5; round++) {
+				CountDownLatch received = new CountDownLatch(2);
+				publisher.subscribe(new Flow.Subscriber<SudokuPuzzle>() {
+					Flow.Subscription subscription;
+
+					public void onSubscribe(Flow.Subscription s) {
+						subscription = s;
+						s.request(2);
+					}
+
+					public void onNext(SudokuPuzzle sp) {
+						received.countDown();
+						if (received.getCount() == 0) subscription.cancel();
+					}
+
+					public void onError(Throwable t) { t.printStackTrace(); }
+
+					public void onComplete() {}
+				});
+				if (!received.await(60, TimeUnit.SECONDS)) stalled++;
+			}
+			System.out.println("Resubscriptions: 5 rounds, " + stalled + " stalled.");
+		}
+	}
+
+}
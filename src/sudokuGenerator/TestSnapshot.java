@@ -0,0 +1,59 @@
+package sudokuGenerator;
+
+import java.lang.management.ManagementFactory;
+import java.util.*;
+
+public class TestSnapshot {
+
+	static final com.sun.management.ThreadMXBean THREADS =
+		(com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+	public static void main(String[] args) {
+		PuzzleGenerator pg = new PuzzleGenerator(19870511);
+		List<int[][]> boards = pg.generateBoards(5);
+		SudokuPuzzle puzzle = pg.generatePuzzle(boards.get(0));
+		int rounds = 100000;
+		long checksum = 0;	// the sum of the difficulties, so that the copies are used
+
+		// saves and restores the best puzzle by deep copy, as the generator loop did
+		long bytes = allocatedBytes();
+		SudokuPuzzle best = new SudokuPuzzle(puzzle);
+		for (int i = 0; i < rounds; i++) {
+			SudokuPuzzle current = best;
+			best = new SudokuPuzzle(best);
+			checksum += current.getDifficulty();
+		}
+		report("Deep copy", allocatedBytes() - bytes, rounds);
+
+		// saves and restores the best puzzle by snapshot
+		bytes = allocatedBytes();
+		SudokuPuzzle.Snapshot snapshot = puzzle.snapshot();
+		for (int i = 0; i < rounds; i++) {
+			puzzle.restore(snapshot);
+			snapshot = puzzle.snapshot();
+			checksum += puzzle.getDifficulty();
+		}
+		report("Snapshot ", allocatedBytes() - bytes, rounds);
+
+		// allocation of the whole generator loop per puzzle
+		bytes = allocatedBytes();
+		long start = System.nanoTime();
+		for (int[][] board : boards) {
+			pg.generatePuzzle(board);
+		}
+		System.out.println(
+			"generatePuzzle\t" + (allocatedBytes() - bytes) / boards.size() + " bytes/puzzle\t" +
+			(System.nanoTime() - start) / 1000000 / boards.size() + " ms/puzzle"
+		);
+		System.out.println("difficulty checksum " + checksum);
+	}
+
+	static long allocatedBytes() {
+		return THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+
+	static void report(String name, long bytes, int rounds) {
+		System.out.println(name + "\t" + bytes / rounds + " bytes per save and restore");
+	}
+
+}
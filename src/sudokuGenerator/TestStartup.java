@@ -0,0 +1,54 @@
+package sudokuGenerator;
+
+import java.io.File;
+import java.util.*;
+
+public class TestStartup {
+
+	public static void main(String[] args) throws Exception {
+		String dir = args.length > 0 ? args[0] : "build/cli";
+		int runs = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+		String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+		String jar = dir + "/sudoku-cli.jar";
+		String jsa = dir + "/sudoku-cli.jsa";
+		String[] cli = { "sudokuGenerator.GeneratorCli", "--level=3", "--count=1" };
+		if (!new File(jar).exists()) {
+			System.err.println("Run scripts/build-cli.sh first.");
+			System.exit(2);
+		}
+
+		// cold starts of "generate 1 level-3 puzzle" with a new seed each run
+		measure("JVM", runs, concat(new String[] { java, "-cp", jar }, cli));
+		measure("JVM, C1 only", runs, concat(
+			new String[] { java, "-XX:TieredStopAtLevel=1", "-cp", jar }, cli));
+		if (new File(jsa).exists()) {
+			measure("JVM, CDS, C1 only", runs, concat(new String[] {
+				java, "-XX:SharedArchiveFile=" + jsa, "-XX:TieredStopAtLevel=1", "-cp", jar }, cli));
+		}
+		if (new File(dir + "/sudoku-cli").exists()) {
+			measure("Native image", runs, concat(new String[] { dir + "/sudoku-cli" },
+				Arrays.copyOfRange(cli, 1, cli.length)));
+		}
+	}
+
+	static void measure(String name, int runs, String[] command) throws Exception {
+		long[] millis = new long[runs];
+		for (int i = 0; i < runs; i++) {
+			String[] cmd = concat(command, new String[] { "--seed=" + i });
+			long start = System.nanoTime();
+			Process p = new ProcessBuilder(cmd).redirectOutput(ProcessBuilder.Redirect.DISCARD)
+				.redirectError(ProcessBuilder.Redirect.INHERIT).start();
+			if (p.waitFor() != 0) throw new IllegalStateException(name + " failed: " + String.join(" ", cmd));
+			millis[i] = (System.nanoTime() - start) / 1000000;
+		}
+		Arrays.sort(millis);
+		System.out.println(name + "\tmedian " + millis[runs / 2] + " ms\tmin " + millis[0] + " ms");
+	}
+
+	static String[] concat(String[] a, String[] b) {
+		String[] c = Arrays.copyOf(a, a.length + b.length);
+		System.arraycopy(b, 0, c, a.length, b.length);
+		return c;
+	}
+
+}
@@ -0,0 +1,72 @@
+package sudokuGenerator;
+
+import java.util.*;
+
+public class TestTemplate {
+
+	// the letter S
+	static final String LETTER = 
+		"..xxxxx.." +
+		".xx...xx." +
+		".xx......" +
+		"..xxx...." +
+		"...xxxx.." +
+		"......xx." +
+		"x.....xx." +
+		"xxx..xxx." +
+		"..xxxx...";
+
+	public static void main(String[] args) {
+		int num = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+		Random rand = new Random(1);
+		Map<String, GivensTemplate> templates = new LinkedHashMap<String, GivensTemplate>();
+		templates.put("Letter S", GivensTemplate.parse(LETTER));
+		for (Symmetry symmetry : Symmetry.values()) {
+			templates.put(symmetry + " 28", GivensTemplate.random(symmetry, 28, rand));
+		}
+		templates.put("MIRROR 32", GivensTemplate.random(Symmetry.MIRROR, 32, rand));
+
+		System.out.println("Template\tGivens\tLevel\tSearch\t\tBoards tested one by one");
+		for (Map.Entry<String, GivensTemplate> e : templates.entrySet()) {
+			GivensTemplate template = e.getValue();
+			for (int level : new int[] { 0, 4 }) {
+				// the template search
+				PuzzleGenerator pg = new PuzzleGenerator(19870511);
+				int generated = 0;
+				long start = System.nanoTime();
+				for (int i = 0; i < num; i++) {
+					SudokuPuzzle sp = pg.generatePuzzleFromTemplate(template, level);
+					if (sp == null) continue;
+					if (!sp.uniquelySolvable() || !GivensTemplate.of(sp.getPuzzleBoard()).toString().equals(template.toString())) {
+						throw new IllegalStateException("Wrong puzzle: " + SudokuPuzzle.formatGrid(sp.getPuzzleBoard()));
+					}
+					generated++;
+				}
+				double ms = (System.nanoTime() - start) / 1e6 / Math.max(1, generated);
+
+				// generating boards and testing each one, for one puzzle
+				pg = new PuzzleGenerator(19870511);
+				Grid grid = new Grid();
+				int boards = 0;
+				boolean found = false;
+				start = System.nanoTime();
+				while (!found && boards < 20000) {
+					int[][] board = pg.generateBoard();
+					boards++;
+					for (int p = 0; p < 81; p++) {
+						grid.setVal(p, template.isGiven(p) ? board[p / 9][p % 9] : 0);
+					}
+					if (grid.countSolutions(2) != 1) continue;
+					int diff = new SudokuPuzzle(grid.toBoard(), board).getDifficulty();
+					found = level == 0 || (diff >= PuzzleGenerator.LV_MIN_DIFF[level] && diff < PuzzleGenerator.LV_MAX_DIFF[level]);
+				}
+				double naiveMs = (System.nanoTime() - start) / 1e6;
+
+				System.out.println(String.format("%s\t%d\t%d\t%d/%d, %.0f ms\t%s after %d boards, %.0f ms",
+					e.getKey(), template.getNumGivens(), level, generated, num, ms,
+					found ? "found" : "none", boards, naiveMs));
+			}
+		}
+	}
+
+}